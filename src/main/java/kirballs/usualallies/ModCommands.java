@@ -0,0 +1,260 @@
+package kirballs.usualallies;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import kirballs.usualallies.entity.ai.AllyCombatCoordinator;
+import kirballs.usualallies.entity.ai.AllyDetail;
+import kirballs.usualallies.entity.ai.AllyGoalScheduler;
+import kirballs.usualallies.entity.ai.NegativePathCache;
+import kirballs.usualallies.entity.ai.OwnerFlowField;
+import kirballs.usualallies.entity.ai.OwnerLandingSpots;
+import kirballs.usualallies.entity.ai.PathRequestQueue;
+import kirballs.usualallies.entity.ai.PatrolRoute;
+import kirballs.usualallies.util.AllyGroups;
+import kirballs.usualallies.util.AllyManager;
+import kirballs.usualallies.util.AllyRegistry;
+import kirballs.usualallies.util.AllyRegroup;
+import kirballs.usualallies.util.AllyTickService;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.EntityArgument;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.MobSpawnType;
+import net.minecraft.world.entity.monster.Zombie;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the mod's server commands under {@code /usualallies}.
+ *
+ * Subcommands:
+ * - stats: per-level gauges for the ally tracking structures and goal check counters (operators only)
+ * - stress [count]: spawns a battle of allied vs hostile zombies for profiling (operators only)
+ * - group create|delete|join|leave|list: manages ally groups (operators only)
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class ModCommands {
+
+    // Zombies per side spawned by "/usualallies stress" without a count
+    private static final int DEFAULT_STRESS_COUNT = 500;
+
+    // Distance of each side's spawn area from the player, and its half-width
+    private static final int STRESS_SIDE_OFFSET = 12;
+    private static final int STRESS_SPREAD = 10;
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal(UsualAllies.MOD_ID)
+                .then(Commands.literal("stats")
+                        .requires(source -> source.hasPermission(2))
+                        .executes(ModCommands::showStats))
+                .then(Commands.literal("stress")
+                        .requires(source -> source.hasPermission(2))
+                        .executes(context -> spawnStressScenario(context, DEFAULT_STRESS_COUNT))
+                        .then(Commands.argument("count", IntegerArgumentType.integer(1, 2000))
+                                .executes(context -> spawnStressScenario(context,
+                                        IntegerArgumentType.getInteger(context, "count")))))
+                .then(Commands.literal("group")
+                        .requires(source -> source.hasPermission(2))
+                        .then(Commands.literal("create")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .executes(ModCommands::createGroup)))
+                        .then(Commands.literal("delete")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .executes(ModCommands::deleteGroup)))
+                        .then(Commands.literal("join")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .then(Commands.argument("players", EntityArgument.players())
+                                                .executes(context -> changeMembership(context, true)))))
+                        .then(Commands.literal("leave")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .then(Commands.argument("players", EntityArgument.players())
+                                                .executes(context -> changeMembership(context, false)))))
+                        .then(Commands.literal("list")
+                                .executes(ModCommands::listGroups))));
+    }
+
+    /**
+     * Prints the size of every ally tracking structure, per level.
+     */
+    private static int showStats(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        for (ServerLevel level : source.getServer().getAllLevels()) {
+            AllyRegistry registry = AllyRegistry.get(level);
+            String line = String.format("%s: %d owners, %d registered allies, %d loaded (%d owners, %d sections), %d paths queued%s",
+                    level.dimension().location(),
+                    registry.getOwnerCount(),
+                    registry.getAllyCount(),
+                    AllyTickService.getLoadedCount(level),
+                    AllyTickService.getLoadedOwnerCount(level),
+                    AllyTickService.getOccupiedSectionCount(level),
+                    PathRequestQueue.getDepth(level),
+                    registry.isCompacting() ? " (compacting)" : "");
+            source.sendSuccess(() -> Component.literal(line), false);
+            int[] tiers = AllyDetail.countTiers(level);
+            String detail = String.format("  AI detail: %d near, %d medium, %d far",
+                    tiers[AllyDetail.Tier.NEAR.ordinal()],
+                    tiers[AllyDetail.Tier.MEDIUM.ordinal()],
+                    tiers[AllyDetail.Tier.FAR.ordinal()]);
+            source.sendSuccess(() -> Component.literal(detail), false);
+        }
+        String goals = String.format("Goal checks: every %d ticks, %d run, %d skipped",
+                AllyGoalScheduler.getInterval(),
+                AllyGoalScheduler.getChecksRun(),
+                AllyGoalScheduler.getChecksSkipped());
+        source.sendSuccess(() -> Component.literal(goals), false);
+        String fields = String.format("Follow flow fields built: %d", OwnerFlowField.getFieldsBuilt());
+        source.sendSuccess(() -> Component.literal(fields), false);
+        String landings = String.format("Teleport landing spots: %d cells probed, %d handed out",
+                OwnerLandingSpots.getCellsProbed(),
+                OwnerLandingSpots.getSpotsClaimed());
+        source.sendSuccess(() -> Component.literal(landings), false);
+        String regroups = String.format("Regroups: %d queued, %d allies moved (%d across dimensions)",
+                AllyRegroup.getJobCount(),
+                AllyRegroup.getAlliesMoved(),
+                AllyRegroup.getAlliesMovedAcrossDimensions());
+        source.sendSuccess(() -> Component.literal(regroups), false);
+        String combat = String.format("Combat coordination: %d passes, %d targets assigned",
+                AllyCombatCoordinator.getPassesRun(),
+                AllyCombatCoordinator.getTargetsAssigned());
+        source.sendSuccess(() -> Component.literal(combat), false);
+        String paths = String.format("Path requests: %d run, %d coalesced, wait avg %.1f / max %d ticks",
+                PathRequestQueue.getRequestsRun(),
+                PathRequestQueue.getRequestsCoalesced(),
+                PathRequestQueue.getAverageWaitTicks(),
+                PathRequestQueue.getMaxWaitTicks());
+        source.sendSuccess(() -> Component.literal(paths), false);
+        String unreachable = String.format("Unreachable follow targets: %d failures, %d searches skipped",
+                NegativePathCache.getFailuresRecorded(),
+                NegativePathCache.getSearchesSkipped());
+        source.sendSuccess(() -> Component.literal(unreachable), false);
+        String routes = String.format("Patrol route segments: %d computed, %d replayed",
+                PatrolRoute.getSegmentsComputed(),
+                PatrolRoute.getSegmentsReplayed());
+        source.sendSuccess(() -> Component.literal(routes), false);
+        return 1;
+    }
+
+    /**
+     * Spawns {@code count} zombies allied to the executing player on one side
+     * and {@code count} plain zombies on the other, so the friendly-target veto
+     * and ally tick cost can be profiled under a large fight.
+     */
+    private static int spawnStressScenario(CommandContext<CommandSourceStack> context, int count)
+            throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        ServerPlayer player = source.getPlayerOrException();
+        ServerLevel level = player.serverLevel();
+        RandomSource random = level.getRandom();
+        
+        List<Zombie> allies = new ArrayList<>();
+        List<Zombie> hostiles = new ArrayList<>();
+        for (int i = 0; i < count * 2; i++) {
+            boolean allied = i < count;
+            int x = player.getBlockX() + (allied ? -STRESS_SIDE_OFFSET : STRESS_SIDE_OFFSET)
+                    + random.nextInt(STRESS_SPREAD * 2 + 1) - STRESS_SPREAD;
+            int z = player.getBlockZ() + random.nextInt(STRESS_SPREAD * 2 + 1) - STRESS_SPREAD;
+            int y = level.getHeight(Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, x, z);
+            
+            Zombie zombie = EntityType.ZOMBIE.create(level);
+            if (zombie == null) {
+                continue;
+            }
+            zombie.moveTo(x + 0.5, y, z + 0.5, random.nextFloat() * 360.0f, 0.0f);
+            zombie.finalizeSpawn(level, level.getCurrentDifficultyAt(zombie.blockPosition()),
+                    MobSpawnType.COMMAND, null, null);
+            if (level.addFreshEntity(zombie)) {
+                if (allied) {
+                    AllyManager.addAlly(player, zombie);
+                    allies.add(zombie);
+                } else {
+                    hostiles.add(zombie);
+                }
+            }
+        }
+        
+        // Zombies don't target each other on their own; point every hostile at
+        // an ally so the allies retaliate and the fight spreads
+        if (!allies.isEmpty()) {
+            for (Zombie hostile : hostiles) {
+                hostile.setTarget(allies.get(random.nextInt(allies.size())));
+            }
+        }
+        
+        int total = allies.size() + hostiles.size();
+        source.sendSuccess(() -> Component.literal(
+                String.format("Spawned %d zombies (%d per side)", total, count)), true);
+        return total;
+    }
+
+    private static int createGroup(CommandContext<CommandSourceStack> context) {
+        String name = StringArgumentType.getString(context, "name");
+        if (!AllyGroups.get(context.getSource().getServer()).create(name)) {
+            context.getSource().sendFailure(Component.translatable("commands.usualallies.group.exists", name));
+            return 0;
+        }
+        context.getSource().sendSuccess(() -> Component.translatable("commands.usualallies.group.created", name), true);
+        return 1;
+    }
+
+    private static int deleteGroup(CommandContext<CommandSourceStack> context) {
+        String name = StringArgumentType.getString(context, "name");
+        if (!AllyGroups.get(context.getSource().getServer()).delete(name)) {
+            context.getSource().sendFailure(Component.translatable("commands.usualallies.group.unknown", name));
+            return 0;
+        }
+        context.getSource().sendSuccess(() -> Component.translatable("commands.usualallies.group.deleted", name), true);
+        return 1;
+    }
+
+    /**
+     * Adds players to, or removes them from, a group.
+     */
+    private static int changeMembership(CommandContext<CommandSourceStack> context, boolean join)
+            throws CommandSyntaxException {
+        CommandSourceStack source = context.getSource();
+        String name = StringArgumentType.getString(context, "name");
+        AllyGroups groups = AllyGroups.get(source.getServer());
+        if (groups.getMembers(name) == null) {
+            source.sendFailure(Component.translatable("commands.usualallies.group.unknown", name));
+            return 0;
+        }
+        
+        int changed = 0;
+        for (ServerPlayer player : EntityArgument.getPlayers(context, "players")) {
+            if (join ? groups.join(name, player.getUUID()) : groups.leave(name, player.getUUID())) {
+                changed++;
+            }
+        }
+        
+        int count = changed;
+        source.sendSuccess(() -> Component.translatable(
+                join ? "commands.usualallies.group.joined" : "commands.usualallies.group.left", count, name), true);
+        return count;
+    }
+
+    private static int listGroups(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        AllyGroups groups = AllyGroups.get(source.getServer());
+        if (groups.getGroupNames().isEmpty()) {
+            source.sendSuccess(() -> Component.translatable("commands.usualallies.group.none"), false);
+            return 0;
+        }
+        for (String name : groups.getGroupNames()) {
+            int members = groups.getMembers(name).size();
+            source.sendSuccess(() -> Component.translatable("commands.usualallies.group.entry", name, members), false);
+        }
+        return groups.getGroupNames().size();
+    }
+}
@@ -0,0 +1,117 @@
+package kirballs.usualallies;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+
+/**
+ * Mod configuration, registered as the common config in {@link UsualAllies}.
+ * Add new options here by defining them in the static block below.
+ */
+public class ModConfigs {
+
+    public static final ForgeConfigSpec COMMON_SPEC;
+
+    // Ally maintenance
+    public static final ForgeConfigSpec.IntValue ALLY_MAINTENANCE_INTERVAL;
+    public static final ForgeConfigSpec.IntValue ALLY_COMPACTION_INTERVAL;
+    public static final ForgeConfigSpec.IntValue ALLY_COMPACTION_BUDGET;
+
+    // Ally goal scheduling
+    public static final ForgeConfigSpec.IntValue GOAL_CHECK_INTERVAL;
+    public static final ForgeConfigSpec.IntValue GOAL_CHECK_MAX_INTERVAL;
+    public static final ForgeConfigSpec.DoubleValue GOAL_CHECK_TARGET_MSPT;
+    public static final ForgeConfigSpec.IntValue LOD_MEDIUM_DISTANCE;
+    public static final ForgeConfigSpec.IntValue LOD_FAR_DISTANCE;
+
+    // Ally navigation
+    public static final ForgeConfigSpec.IntValue FLOW_FIELD_RADIUS;
+    public static final ForgeConfigSpec.IntValue FLOW_FIELD_REFRESH;
+    public static final ForgeConfigSpec.IntValue PATH_NODE_BUDGET;
+    public static final ForgeConfigSpec.BooleanValue ROUTE_PATROL;
+    public static final ForgeConfigSpec.IntValue ROUTE_WAYPOINTS;
+    public static final ForgeConfigSpec.IntValue FORMATION_RECOMPUTE_DISTANCE;
+    public static final ForgeConfigSpec.BooleanValue SKIP_ALLY_PUSH;
+    public static final ForgeConfigSpec.IntValue REGROUP_BUDGET;
+
+    // Ally combat
+    public static final ForgeConfigSpec.IntValue COMBAT_INTERVAL;
+    public static final ForgeConfigSpec.IntValue COMBAT_RADIUS;
+    public static final ForgeConfigSpec.IntValue COMBAT_MAX_PER_TARGET;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+
+        builder.comment("Settings for befriended mobs").push("allies");
+        ALLY_MAINTENANCE_INTERVAL = builder
+                .comment("Ticks between maintenance passes over each loaded ally (target scrubbing).",
+                        "Allies are spread evenly across the interval.")
+                .defineInRange("maintenanceInterval", 20, 1, 1200);
+        ALLY_COMPACTION_INTERVAL = builder
+                .comment("Ticks between passes that drop registry entries of allies that no longer exist.")
+                .defineInRange("compactionInterval", 6000, 20, 72000);
+        ALLY_COMPACTION_BUDGET = builder
+                .comment("Registry entries checked per tick while a compaction pass runs.")
+                .defineInRange("compactionBudget", 64, 1, 4096);
+        GOAL_CHECK_INTERVAL = builder
+                .comment("Ticks between full canUse checks of each ally's command goals while the server is healthy.",
+                        "Allies are spread evenly across the interval.")
+                .defineInRange("goalCheckInterval", 4, 1, 100);
+        GOAL_CHECK_MAX_INTERVAL = builder
+                .comment("Longest interval goal checks are stretched to while the server is lagging.")
+                .defineInRange("goalCheckMaxInterval", 20, 1, 200);
+        GOAL_CHECK_TARGET_MSPT = builder
+                .comment("Average milliseconds per tick above which the goal check interval is stretched,",
+                        "in proportion to the overshoot.")
+                .defineInRange("goalCheckTargetMspt", 40.0, 1.0, 1000.0);
+        LOD_MEDIUM_DISTANCE = builder
+                .comment("Distance to the nearest player, in blocks, from which allies and Kirbs use reduced AI detail:",
+                        "no look or idle goals, and goal checks and path recalculations twice as far apart.")
+                .defineInRange("lodMediumDistance", 32, 8, 256);
+        LOD_FAR_DISTANCE = builder
+                .comment("Distance to the nearest player, in blocks, from which allies and Kirbs use the lowest AI detail:",
+                        "goal checks and path recalculations four times as far apart.")
+                .defineInRange("lodFarDistance", 64, 8, 256);
+        FLOW_FIELD_RADIUS = builder
+                .comment("Horizontal radius, in blocks, of the shared walking field computed around each followed owner.",
+                        "Followers inside it steer by the field instead of running their own path searches.")
+                .defineInRange("flowFieldRadius", 16, 4, 32);
+        FLOW_FIELD_REFRESH = builder
+                .comment("Ticks an owner's walking field is reused before it is recomputed.")
+                .defineInRange("flowFieldRefresh", 10, 1, 100);
+        PATH_NODE_BUDGET = builder
+                .comment("Estimated pathfinding nodes ally and Kirb path requests may use per level per tick.",
+                        "A request is estimated at its mob's follow range x 16 nodes; at least one request runs every tick.")
+                .defineInRange("pathNodeBudget", 4096, 64, 65536);
+        ROUTE_PATROL = builder
+                .comment("Patrol a fixed ring of waypoints around the patrol center instead of random spots.",
+                        "Paths between waypoints are cached and replayed until blocks along them change.")
+                .define("routePatrol", false);
+        ROUTE_WAYPOINTS = builder
+                .comment("Number of waypoints on a patrol route.")
+                .defineInRange("routeWaypoints", 6, 3, 16);
+        FORMATION_RECOMPUTE_DISTANCE = builder
+                .comment("Blocks an owner moves before the formation slots of their followers are moved along.")
+                .defineInRange("formationRecomputeDistance", 4, 1, 16);
+        SKIP_ALLY_PUSH = builder
+                .comment("Put each owner's allies on a shared scoreboard team so they don't push each other.",
+                        "Mobs already on another team are left alone.")
+                .define("skipAllyPush", false);
+        REGROUP_BUDGET = builder
+                .comment("Allies moved per tick, across all owners, when following allies regroup",
+                        "after their owner teleports or changes dimension.")
+                .defineInRange("regroupBudget", 8, 1, 256);
+        COMBAT_INTERVAL = builder
+                .comment("Ticks between target assignment passes over each owner's allies.",
+                        "Owners are spread evenly across the interval.")
+                .defineInRange("combatInterval", 10, 1, 100);
+        COMBAT_RADIUS = builder
+                .comment("Radius, in blocks, around an owner searched for threats their allies should fight.",
+                        "Allies up to twice this far from the owner are given targets.")
+                .defineInRange("combatRadius", 16, 4, 64);
+        COMBAT_MAX_PER_TARGET = builder
+                .comment("Most allies of one owner assigned to the same target.")
+                .defineInRange("combatMaxPerTarget", 3, 1, 16);
+        builder.pop();
+
+        COMMON_SPEC = builder.build();
+    }
+}
@@ -1,13 +1,15 @@
 package kirballs.usualallies;
 
 import kirballs.usualallies.entity.kirb.KirbEntity;
+import kirballs.usualallies.util.AllyStateHolder;
+import net.minecraftforge.common.capabilities.RegisterCapabilitiesEvent;
 import net.minecraftforge.event.entity.EntityAttributeCreationEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
 /**
  * Event handler for entity-related mod events.
- * Registers entity attributes for custom entities.
+ * Registers entity attributes for custom entities and entity capabilities.
  */
 @Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID, bus = Mod.EventBusSubscriber.Bus.MOD)
 public class ModEntityEvents {
@@ -21,4 +23,13 @@ public class ModEntityEvents {
         // Register Kirb attributes
         event.put(ModEntities.KIRB.get(), KirbEntity.createAttributes().build());
     }
+
+    /**
+     * Registers entity capabilities.
+     * The ally state capability is attached in AllyManager.
+     */
+    @SubscribeEvent
+    public static void registerCapabilities(RegisterCapabilitiesEvent event) {
+        event.register(AllyStateHolder.class);
+    }
 }
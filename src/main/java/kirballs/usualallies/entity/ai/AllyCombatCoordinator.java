@@ -0,0 +1,223 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.util.AllyCommand;
+import kirballs.usualallies.util.AllyManager;
+import kirballs.usualallies.util.AllyStateHolder;
+import kirballs.usualallies.util.AllyTickService;
+import kirballs.usualallies.util.OwnerLookup;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.NeutralMob;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.entity.monster.Creeper;
+import net.minecraft.world.entity.monster.Enemy;
+import net.minecraft.world.entity.player.Player;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Picks targets for an owner's allies, once per owner instead of once per ally.
+ *
+ * Every {@code combatInterval} ticks (staggered across owners) the threats
+ * around each owner in the level are collected with a single scan: whoever
+ * last hurt the owner, whatever the owner last attacked, and unfriendly
+ * mobs within {@code combatRadius} that are hostile or target the owner or
+ * the owner's allies. Neutral mobs only count while angry at the owner's
+ * side, other players' allies only while targeting it, and creepers never.
+ * FOLLOW allies without a fight of their own are then spread over those threats,
+ * nearest first, with at most {@code combatMaxPerTarget} allies on any one
+ * of them, and the choice is pushed into {@link Mob#setTarget}.
+ *
+ * FOLLOW allies in reach of an online owner have their vanilla
+ * {@code NearestAttackableTargetGoal}s removed by {@link AllyManager},
+ * since this replaces their scans; allies elsewhere keep scanning for
+ * themselves. Retaliation goals such as {@code HurtByTargetGoal} are kept.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class AllyCombatCoordinator {
+
+    // Ticks an owner's last attack still counts as a fight the allies should join
+    private static final int OWNER_ATTACK_MEMORY = 100;
+
+    // Most threats considered per owner and pass
+    private static final int MAX_THREATS = 16;
+
+    private static long passesRun;
+    private static long targetsAssigned;
+
+    public static long getPassesRun() {
+        return passesRun;
+    }
+
+    public static long getTargetsAssigned() {
+        return targetsAssigned;
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != LogicalSide.SERVER
+                || !(event.level instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        long gameTime = serverLevel.getGameTime();
+        int interval = ModConfigs.COMBAT_INTERVAL.get();
+        for (UUID ownerUUID : AllyTickService.getLoadedOwners(serverLevel)) {
+            // Spread owners across the interval
+            if ((gameTime + ownerUUID.hashCode()) % interval != 0) {
+                continue;
+            }
+            Player owner = OwnerLookup.get(serverLevel, ownerUUID);
+            if (owner != null && owner.isAlive() && !owner.isSpectator()) {
+                coordinate(serverLevel, owner, AllyTickService.getLoadedAllies(serverLevel, ownerUUID));
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        passesRun = 0;
+        targetsAssigned = 0;
+    }
+
+    /**
+     * Checks whether an ally is close enough to its owner to be given targets.
+     *
+     * @param ally The ally
+     * @param owner The ally's owner, in the same level
+     * @return True if the ally is within twice {@code combatRadius} of the owner
+     */
+    public static boolean isInReach(Mob ally, Player owner) {
+        double reach = ModConfigs.COMBAT_RADIUS.get() * 2.0;
+        return ally.distanceToSqr(owner) <= reach * reach;
+    }
+
+    /**
+     * Runs one assignment pass for an owner's allies.
+     */
+    private static void coordinate(ServerLevel level, Player owner, List<Mob> allies) {
+        passesRun++;
+        List<LivingEntity> threats = collectThreats(level, owner);
+        if (threats.isEmpty()) {
+            return;
+        }
+
+        // Allies on each threat; allies already on a threat keep it while there is room
+        int maxPerTarget = ModConfigs.COMBAT_MAX_PER_TARGET.get();
+        Map<LivingEntity, Integer> assigned = new IdentityHashMap<>();
+        for (LivingEntity threat : threats) {
+            assigned.put(threat, 0);
+        }
+        List<Mob> free = new ArrayList<>();
+        for (Mob ally : allies) {
+            // Allies on other commands keep their post and scan for themselves
+            if (AllyManager.getCommand(ally) != AllyCommand.FOLLOW || !canFight(ally) || !isInReach(ally, owner)) {
+                continue;
+            }
+            LivingEntity current = ally.getTarget();
+            if (current != null && current.isAlive()) {
+                Integer count = assigned.get(current);
+                if (count == null) {
+                    // A fight of its own (e.g. retaliation); leave it alone
+                    continue;
+                }
+                if (count < maxPerTarget) {
+                    assigned.put(current, count + 1);
+                    continue;
+                }
+            }
+            free.add(ally);
+        }
+
+        for (Mob ally : free) {
+            LivingEntity best = null;
+            double bestDistance = Double.MAX_VALUE;
+            for (LivingEntity threat : threats) {
+                double distance = ally.distanceToSqr(threat);
+                if (assigned.get(threat) < maxPerTarget && distance < bestDistance) {
+                    best = threat;
+                    bestDistance = distance;
+                }
+            }
+            if (best == null) {
+                // Every threat is fully covered
+                return;
+            }
+            assigned.put(best, assigned.get(best) + 1);
+            if (ally.getTarget() != best) {
+                ally.setTarget(best);
+                targetsAssigned++;
+            }
+        }
+    }
+
+    /**
+     * Collects the threats around an owner, most important first.
+     */
+    private static List<LivingEntity> collectThreats(ServerLevel level, Player owner) {
+        List<LivingEntity> threats = new ArrayList<>();
+        addThreat(threats, owner, owner.getLastHurtByMob());
+        if (owner.tickCount - owner.getLastHurtMobTimestamp() < OWNER_ATTACK_MEMORY) {
+            addThreat(threats, owner, owner.getLastHurtMob());
+        }
+
+        double radius = ModConfigs.COMBAT_RADIUS.get();
+        List<Mob> nearby = level.getEntitiesOfClass(Mob.class, owner.getBoundingBox().inflate(radius),
+                mob -> isThreat(mob, owner));
+        nearby.sort(Comparator.comparingDouble(mob -> mob.distanceToSqr(owner)));
+        for (Mob mob : nearby) {
+            if (threats.size() >= MAX_THREATS) {
+                break;
+            }
+            addThreat(threats, owner, mob);
+        }
+        return threats;
+    }
+
+    /**
+     * Checks whether a mob found near the owner should be fought.
+     * Neutral mobs and other players' allies only count once they go after the
+     * owner's side; hostile mobs always do.
+     */
+    private static boolean isThreat(Mob mob, Player owner) {
+        boolean huntsOwnerSide = isOwnerSide(mob.getTarget(), owner);
+        if (mob instanceof NeutralMob neutral) {
+            return neutral.isAngryAt(owner) || huntsOwnerSide;
+        }
+        if (AllyManager.isAlly(mob)) {
+            return huntsOwnerSide;
+        }
+        return mob instanceof Enemy || huntsOwnerSide;
+    }
+
+    private static boolean isOwnerSide(@Nullable LivingEntity entity, Player owner) {
+        return entity != null && (entity == owner || AllyManager.isAllyOf(owner, entity));
+    }
+
+    private static void addThreat(List<LivingEntity> threats, Player owner, @Nullable LivingEntity entity) {
+        // Allies in melee would set creepers off right next to the owner
+        if (entity != null && entity != owner && !(entity instanceof Creeper) && entity.isAlive()
+                && !threats.contains(entity) && !AllyManager.areFriendly(owner, entity)) {
+            threats.add(entity);
+        }
+    }
+
+    /**
+     * Checks whether an ally can be given a target: it is awake and can deal melee damage.
+     */
+    private static boolean canFight(Mob ally) {
+        if (!ally.isAlive() || ally.getAttribute(Attributes.ATTACK_DAMAGE) == null) {
+            return false;
+        }
+        AllyStateHolder holder = AllyManager.getHolder(ally);
+        return holder == null || holder.getFreeze() == null || !holder.getFreeze().isFrozen();
+    }
+}
@@ -0,0 +1,89 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.util.AllyCommand;
+import net.minecraft.world.entity.ai.goal.Goal;
+import net.minecraft.world.entity.ai.goal.GoalSelector;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Handle to the command-specific goals of one mob.
+ * Instead of every goal polling the mob's command each tick, the owner of
+ * the command calls {@link #apply} when it changes, and only the goals for
+ * the new command stay registered in the goal selector. Inactive goals are
+ * not in the selector at all, so they cost nothing.
+ */
+public class AllyCommandGoals {
+
+    private final GoalSelector selector;
+    private final List<Entry> entries = new ArrayList<>();
+
+    // Command the registered goals currently match, null when none are registered
+    @Nullable
+    private AllyCommand active;
+
+    public AllyCommandGoals(GoalSelector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Declares a goal that should only be registered under the given commands.
+     * Takes effect on the next {@link #apply}.
+     *
+     * @param priority The goal priority
+     * @param goal The goal
+     * @param first A command the goal is active for
+     * @param rest Further commands the goal is active for
+     * @return This handle, for chaining
+     */
+    public AllyCommandGoals add(int priority, Goal goal, AllyCommand first, AllyCommand... rest) {
+        entries.add(new Entry(priority, goal, EnumSet.of(first, rest)));
+        return this;
+    }
+
+    /**
+     * Registers the goals of a command and removes all others.
+     * Running goals that are removed are stopped by the selector.
+     *
+     * @param command The new command, or null to remove every command goal
+     */
+    public void apply(@Nullable AllyCommand command) {
+        if (command == active && command != null) {
+            return;
+        }
+        active = command;
+        for (Entry entry : entries) {
+            boolean wanted = command != null && entry.commands.contains(command);
+            if (wanted && !entry.registered) {
+                selector.addGoal(entry.priority, entry.goal);
+            } else if (!wanted && entry.registered) {
+                selector.removeGoal(entry.goal);
+            }
+            entry.registered = wanted;
+        }
+    }
+
+    @Nullable
+    public AllyCommand getActive() {
+        return active;
+    }
+
+    private static class Entry {
+
+        private final int priority;
+        private final Goal goal;
+        private final EnumSet<AllyCommand> commands;
+
+        // Whether the goal is currently in the selector
+        private boolean registered;
+
+        private Entry(int priority, Goal goal, EnumSet<AllyCommand> commands) {
+            this.priority = priority;
+            this.goal = goal;
+            this.commands = commands;
+        }
+    }
+}
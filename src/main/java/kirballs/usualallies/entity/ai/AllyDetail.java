@@ -0,0 +1,182 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.util.AllyManager;
+import kirballs.usualallies.util.AllyStateHolder;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.goal.Goal;
+import net.minecraft.world.entity.ai.goal.LookAtPlayerGoal;
+import net.minecraft.world.entity.ai.goal.RandomLookAroundGoal;
+import net.minecraft.world.entity.ai.goal.WrappedGoal;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Distance-based AI level of detail for allies and Kirbs.
+ *
+ * Each mob is put in a {@link Tier} by the distance to the nearest player,
+ * using the {@code lodMediumDistance} and {@code lodFarDistance} thresholds.
+ * Tiers past {@link Tier#NEAR} take the look and idle goals
+ * ({@link LookAtPlayerGoal}, {@link RandomLookAroundGoal}) out of the goal
+ * selector, and stretch goal checks and path recalculations by the tier's
+ * multiplier. Nobody is close enough to notice either.
+ *
+ * Tiers are refreshed by the periodic ally maintenance for allies and from
+ * {@code KirbEntity#tick} for Kirbs. Frozen allies are left alone, since
+ * {@link AllyFreeze} already holds all of their goals.
+ */
+public class AllyDetail {
+
+    /**
+     * Detail tiers, nearest first.
+     */
+    public enum Tier {
+        NEAR(1),
+        MEDIUM(2),
+        FAR(4);
+
+        // Factor applied to goal check and path recalculation intervals
+        private final int multiplier;
+
+        Tier(int multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public int getMultiplier() {
+            return multiplier;
+        }
+    }
+
+    private final Mob mob;
+
+    private Tier tier = Tier.NEAR;
+
+    // Look and idle goals taken out of the goal selector while not NEAR
+    private final List<StashedGoal> idleGoals = new ArrayList<>();
+
+    public AllyDetail(Mob mob) {
+        this.mob = mob;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    /**
+     * Recomputes a mob's tier from the nearest player and applies it,
+     * creating its detail state on first use.
+     *
+     * @param mob The ally or Kirb
+     */
+    public static void update(Mob mob) {
+        AllyStateHolder holder = AllyManager.getHolder(mob);
+        if (holder == null) {
+            return;
+        }
+        if (holder.getFreeze() != null && holder.getFreeze().isFrozen()) {
+            return;
+        }
+        AllyDetail detail = holder.getDetail();
+        if (detail == null) {
+            detail = new AllyDetail(mob);
+            holder.setDetail(detail);
+        }
+        detail.setTier(tierFor(mob));
+    }
+
+    /**
+     * Gets a mob's current tier.
+     *
+     * @param mob The mob
+     * @return The tier, or {@link Tier#NEAR} if it hasn't been computed
+     */
+    public static Tier getTier(Mob mob) {
+        AllyStateHolder holder = AllyManager.getHolder(mob);
+        AllyDetail detail = holder != null ? holder.getDetail() : null;
+        return detail != null ? detail.tier : Tier.NEAR;
+    }
+
+    /**
+     * Gets the interval multiplier of a mob's current tier.
+     */
+    public static int getMultiplier(Mob mob) {
+        return getTier(mob).getMultiplier();
+    }
+
+    /**
+     * Counts the mobs of a level in each tier, for {@code /usualallies stats}.
+     *
+     * @param level The level
+     * @return Mob counts indexed by tier ordinal
+     */
+    public static int[] countTiers(ServerLevel level) {
+        int[] counts = new int[Tier.values().length];
+        for (Entity entity : level.getAllEntities()) {
+            if (entity instanceof Mob mob) {
+                AllyStateHolder holder = AllyManager.getHolder(mob);
+                if (holder != null && holder.getDetail() != null) {
+                    counts[holder.getDetail().tier.ordinal()]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static Tier tierFor(Mob mob) {
+        Player nearest = mob.level().getNearestPlayer(mob, -1.0);
+        if (nearest == null) {
+            return Tier.FAR;
+        }
+        double distanceSqr = mob.distanceToSqr(nearest);
+        double medium = ModConfigs.LOD_MEDIUM_DISTANCE.get();
+        double far = Math.max(medium, ModConfigs.LOD_FAR_DISTANCE.get());
+        if (distanceSqr >= far * far) {
+            return Tier.FAR;
+        }
+        return distanceSqr >= medium * medium ? Tier.MEDIUM : Tier.NEAR;
+    }
+
+    /**
+     * Puts the mob back at {@link Tier#NEAR}, returning any stashed look and
+     * idle goals to its goal selector. Used when a mob stops being an ally.
+     */
+    public void reset() {
+        setTier(Tier.NEAR);
+    }
+
+    private void setTier(Tier newTier) {
+        if (newTier == tier) {
+            return;
+        }
+        if (newTier == Tier.NEAR) {
+            restoreIdleGoals();
+        } else if (tier == Tier.NEAR) {
+            stashIdleGoals();
+        }
+        tier = newTier;
+    }
+
+    private void stashIdleGoals() {
+        for (WrappedGoal wrapped : new ArrayList<>(mob.goalSelector.getAvailableGoals())) {
+            Goal goal = wrapped.getGoal();
+            if (goal instanceof LookAtPlayerGoal || goal instanceof RandomLookAroundGoal) {
+                idleGoals.add(new StashedGoal(wrapped.getPriority(), goal));
+                mob.goalSelector.removeGoal(goal);
+            }
+        }
+    }
+
+    private void restoreIdleGoals() {
+        for (StashedGoal stashed : idleGoals) {
+            mob.goalSelector.addGoal(stashed.priority(), stashed.goal());
+        }
+        idleGoals.clear();
+    }
+
+    private record StashedGoal(int priority, Goal goal) {
+    }
+}
@@ -1,18 +1,26 @@
 package kirballs.usualallies.entity.ai;
 
-import kirballs.usualallies.util.AllyCommand;
 import kirballs.usualallies.util.AllyManager;
+import net.minecraft.core.BlockPos;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.ai.goal.Goal;
+import net.minecraft.world.entity.ai.navigation.GroundPathNavigation;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.Vec3;
 
 import java.util.EnumSet;
-import java.util.UUID;
 
 /**
  * AI Goal for allied mobs to follow their owner player.
- * Only active when the ally's command is set to FOLLOW.
+ * Only registered while the ally's command is set to FOLLOW.
+ * Each follower heads for its own {@link OwnerFormation} slot around the
+ * owner, walking straight to it once close. Until then, ground walkers
+ * that fit a one block wide, two block tall cell steer by the owner's
+ * shared {@link OwnerFlowField} near the owner; everything else, and a
+ * walker that got stuck on the field, uses normal pathfinding.
+ * Searches for an owner that can't be reached back off through the
+ * {@link NegativePathCache}.
  */
 public class AllyFollowOwnerGoal extends Goal {
 
@@ -33,6 +41,31 @@ public class AllyFollowOwnerGoal extends Goal {
     
     // Old water navigation settings
     private float oldWaterCost;
+    
+    // Ticks without moving a block before the ally counts as stuck
+    private static final int STUCK_TICKS = 60;
+    
+    // Progress monitoring: where the ally last moved to and when
+    private Vec3 lastProgressPos;
+    private long lastProgressTime;
+    
+    // Distance to the formation slot from which the ally walks straight to it
+    private static final double SLOT_APPROACH_DISTANCE = 4.0;
+    
+    // Distance to the formation slot that counts as arrived
+    private static final double SLOT_TOLERANCE = 0.75;
+    
+    // Formation slot around the owner, refreshed every tick; null until known
+    private Vec3 slotPos;
+    
+    // Set when the ally is stuck short of its slot; it then stops where it is
+    private boolean settled;
+    
+    // Ticks a stuck ally pathfinds instead of steering by the flow field
+    private static final int FLOW_FIELD_PAUSE_TICKS = 200;
+    
+    // Game time until which the flow field is not used
+    private long flowFieldPausedUntil;
 
     /**
      * Creates a new follow owner goal for an allied mob.
@@ -52,25 +85,13 @@ public class AllyFollowOwnerGoal extends Goal {
 
     @Override
     public boolean canUse() {
-        // Check if this mob is an ally
-        if (!AllyManager.isAlly(ally)) {
-            return false;
-        }
-        
-        // Check if command is FOLLOW
-        AllyCommand command = AllyManager.getCommand(ally);
-        if (command != AllyCommand.FOLLOW) {
+        // Full checks are spread across ticks by the scheduler
+        if (!AllyGoalScheduler.isDue(ally)) {
             return false;
         }
         
-        // Find the owner
-        UUID ownerUUID = AllyManager.getOwnerUUID(ally);
-        if (ownerUUID == null) {
-            return false;
-        }
-        
-        // Try to get the owner entity
-        Player player = ally.level().getPlayerByUUID(ownerUUID);
+        // Try to get the owner entity (resolved through the cached owner id)
+        Player player = AllyManager.getOwner(ally);
         if (player != null) {
             this.owner = player;
             
@@ -84,19 +105,17 @@ public class AllyFollowOwnerGoal extends Goal {
 
     @Override
     public boolean canContinueToUse() {
-        // Stop if no longer an ally or command changed
-        if (!AllyManager.isAlly(ally)) {
+        // Stop if owner is gone or in another level (command changes remove this goal outright)
+        if (owner == null || !owner.isAlive() || owner.level() != ally.level()) {
             return false;
         }
         
-        AllyCommand command = AllyManager.getCommand(ally);
-        if (command != AllyCommand.FOLLOW) {
+        // Stop in the formation slot, or where the ally got stuck next to it
+        if (settled) {
             return false;
         }
-        
-        // Stop if owner is gone
-        if (owner == null || !owner.isAlive()) {
-            return false;
+        if (slotPos != null) {
+            return ally.distanceToSqr(slotPos) > SLOT_TOLERANCE * SLOT_TOLERANCE;
         }
         
         // Stop if close enough
@@ -107,6 +126,10 @@ public class AllyFollowOwnerGoal extends Goal {
     @Override
     public void start() {
         this.timeToRecalcPath = 0;
+        this.lastProgressPos = ally.position();
+        this.lastProgressTime = ally.level().getGameTime();
+        this.slotPos = null;
+        this.settled = false;
         this.oldWaterCost = ally.getPathfindingMalus(net.minecraft.world.level.pathfinder.BlockPathTypes.WATER);
         ally.setPathfindingMalus(net.minecraft.world.level.pathfinder.BlockPathTypes.WATER, 0.0f);
     }
@@ -114,6 +137,7 @@ public class AllyFollowOwnerGoal extends Goal {
     @Override
     public void stop() {
         this.owner = null;
+        PathRequestQueue.cancel(ally);
         ally.getNavigation().stop();
         ally.setPathfindingMalus(net.minecraft.world.level.pathfinder.BlockPathTypes.WATER, oldWaterCost);
     }
@@ -127,75 +151,119 @@ public class AllyFollowOwnerGoal extends Goal {
         // Look at owner
         ally.getLookControl().setLookAt(owner, 10.0f, ally.getMaxHeadXRot());
         
-        // Recalculate path periodically
-        if (--timeToRecalcPath <= 0) {
-            timeToRecalcPath = adjustedTickDelay(10);
-            
-            double distance = ally.distanceToSqr(owner);
+        boolean recalc = --timeToRecalcPath <= 0;
+        if (recalc) {
+            // Recalculate less often when no player is close enough to notice
+            timeToRecalcPath = adjustedTickDelay(10 * AllyDetail.getMultiplier(ally));
             
             // Teleport if too far away (similar to tamed wolves)
-            if (distance > 144.0) { // 12 blocks squared
+            if (ally.distanceToSqr(owner) > 144.0) { // 12 blocks squared
                 teleportToOwner();
-            } else {
-                ally.getNavigation().moveTo(owner, speedModifier);
+                return;
+            }
+            checkProgress();
+        }
+        
+        // Close to the formation slot: walk straight to it
+        if (owner instanceof Player player) {
+            slotPos = OwnerFormation.getSlot(player, ally);
+            if (ally.distanceToSqr(slotPos) < SLOT_APPROACH_DISTANCE * SLOT_APPROACH_DISTANCE) {
+                PathRequestQueue.cancel(ally);
+                if (!ally.getNavigation().isDone()) {
+                    ally.getNavigation().stop();
+                }
+                ally.getMoveControl().setWantedPosition(slotPos.x, slotPos.y, slotPos.z, speedModifier);
+                return;
             }
         }
+        
+        // Steer by the owner's shared flow field; queue a path search periodically otherwise
+        if (!steerByFlowField() && recalc && !NegativePathCache.isBlocked(ally, owner)) {
+            LivingEntity target = owner;
+            PathRequestQueue.request(ally, target, speedModifier, PathRequestQueue.Priority.FOLLOW, path -> {
+                if (path == null || !path.canReach()) {
+                    NegativePathCache.recordFailure(ally, target);
+                } else {
+                    NegativePathCache.recordSuccess(ally, target);
+                }
+            });
+        }
     }
     
     /**
-     * Teleports the ally near the owner if they're too far away.
+     * Treats an ally that hasn't moved a block in {@link #STUCK_TICKS} as
+     * unable to reach its owner: the failure is recorded so searches back
+     * off, the current path is dropped and the flow field is paused. An ally stuck just short of its
+     * formation slot stops there instead.
      */
-    private void teleportToOwner() {
-        // Try to find a valid position near the owner
-        for (int i = 0; i < 10; ++i) {
-            int xOffset = randomIntInclusive(-3, 3);
-            int yOffset = randomIntInclusive(-1, 1);
-            int zOffset = randomIntInclusive(-3, 3);
-            
-            double x = owner.getX() + xOffset;
-            double y = owner.getY() + yOffset;
-            double z = owner.getZ() + zOffset;
-            
-            if (maybeTeleportTo(x, y, z)) {
+    private void checkProgress() {
+        long now = ally.level().getGameTime();
+        if (ally.position().distanceToSqr(lastProgressPos) >= 1.0) {
+            lastProgressPos = ally.position();
+            lastProgressTime = now;
+        } else if (now - lastProgressTime >= STUCK_TICKS) {
+            if (slotPos != null && ally.distanceToSqr(slotPos) < SLOT_APPROACH_DISTANCE * SLOT_APPROACH_DISTANCE) {
+                // Blocked on the last stretch to the slot; close enough
+                settled = true;
                 return;
             }
+            NegativePathCache.recordFailure(ally, owner);
+            // The field may lead through a gap this mob can't take; pathfind for a while
+            flowFieldPausedUntil = now + FLOW_FIELD_PAUSE_TICKS;
+            PathRequestQueue.cancel(ally);
+            ally.getNavigation().stop();
+            lastProgressTime = now;
         }
     }
     
     /**
-     * Attempts to teleport to the specified position.
+     * Moves one cell along the owner's shared flow field.
+     * Only ground walkers that fit the field's cells use it, and not while
+     * paused after getting stuck; others pathfind.
+     * 
+     * @return True if the ally is inside the field and was steered
      */
-    private boolean maybeTeleportTo(double x, double y, double z) {
-        if (Math.abs(x - owner.getX()) < 2.0 && Math.abs(z - owner.getZ()) < 2.0) {
+    private boolean steerByFlowField() {
+        if (!(owner instanceof Player player) || !(ally.getNavigation() instanceof GroundPathNavigation)) {
             return false;
         }
-        
-        if (!canTeleportTo(new net.minecraft.core.BlockPos((int)x, (int)y, (int)z))) {
+        // Cells are one block wide with two blocks of headroom
+        if (ally.getBbWidth() > 1.0f || ally.getBbHeight() > 2.0f
+                || ally.level().getGameTime() < flowFieldPausedUntil) {
+            return false;
+        }
+        OwnerFlowField field = OwnerFlowField.get(player);
+        BlockPos next = field != null ? field.nextStep(ally.blockPosition()) : null;
+        if (next == null) {
             return false;
         }
         
-        ally.moveTo(x, y, z, ally.getYRot(), ally.getXRot());
-        ally.getNavigation().stop();
+        // Drop any path (queued or followed) from an earlier fallback, then walk to the next cell
+        PathRequestQueue.cancel(ally);
+        if (!ally.getNavigation().isDone()) {
+            ally.getNavigation().stop();
+        }
+        ally.getMoveControl().setWantedPosition(next.getX() + 0.5, next.getY(), next.getZ() + 0.5, speedModifier);
         return true;
     }
     
     /**
-     * Checks if the position is valid for teleportation.
+     * Teleports the ally near the owner if they're too far away.
+     * Landing cells are shared with the owner's other followers, so a group
+     * teleporting in the same tick probes the area once and lands apart.
      */
-    private boolean canTeleportTo(net.minecraft.core.BlockPos pos) {
-        net.minecraft.world.level.pathfinder.BlockPathTypes pathType = 
-                net.minecraft.world.level.pathfinder.WalkNodeEvaluator.getBlockPathTypeStatic(
-                        ally.level(), pos.mutable());
-        
-        if (pathType != net.minecraft.world.level.pathfinder.BlockPathTypes.WALKABLE) {
-            return false;
+    private void teleportToOwner() {
+        // Crossing dimensions is left to AllyRegroup
+        if (!(owner instanceof Player player) || player.level() != ally.level()) {
+            return;
+        }
+        BlockPos spot = OwnerLandingSpots.claim(player, ally);
+        if (spot == null) {
+            return;
         }
         
-        net.minecraft.core.BlockPos blockPos = pos.subtract(ally.blockPosition());
-        return ally.level().noCollision(ally, ally.getBoundingBox().move(blockPos));
-    }
-    
-    private int randomIntInclusive(int min, int max) {
-        return ally.getRandom().nextInt(max - min + 1) + min;
+        ally.moveTo(spot.getX() + 0.5, spot.getY(), spot.getZ() + 0.5, ally.getYRot(), ally.getXRot());
+        PathRequestQueue.cancel(ally);
+        ally.getNavigation().stop();
     }
 }
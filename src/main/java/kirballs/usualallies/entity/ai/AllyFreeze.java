@@ -0,0 +1,144 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.util.AllyManager;
+import kirballs.usualallies.util.AllyStateHolder;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.goal.FloatGoal;
+import net.minecraft.world.entity.ai.goal.Goal;
+import net.minecraft.world.entity.ai.goal.GoalSelector;
+import net.minecraft.world.entity.ai.goal.WrappedGoal;
+import net.minecraftforge.event.entity.living.LivingAttackEvent;
+import net.minecraftforge.event.entity.living.LivingChangeTargetEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Low-cost "frozen" AI for allies told to STAY.
+ *
+ * Freezing takes every goal out of the mob's goal and target selectors
+ * (except {@link FloatGoal}, so it doesn't drown) and keeps them aside, so
+ * the selectors have nothing to evaluate; physics and damage handling are
+ * untouched. Goals are removed rather than blocked with control flags
+ * because {@link Mob} re-enables the movement flags every few ticks.
+ *
+ * A frozen ally wakes as soon as it is attacked or an unfriendly mob
+ * targets it, and is frozen again by the ally maintenance pass once it
+ * has been idle for {@link #MIN_AWAKE_TICKS}.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class AllyFreeze {
+
+    // Shortest time a woken STAY ally stays awake, so its target goals get a chance to run
+    private static final int MIN_AWAKE_TICKS = 100;
+
+    private final Mob mob;
+
+    // Goals taken out of the selectors while frozen
+    private final List<StashedGoal> goals = new ArrayList<>();
+    private final List<StashedGoal> targetGoals = new ArrayList<>();
+
+    private boolean frozen;
+
+    // Game time of the last wake-up
+    private long wokeAt = Long.MIN_VALUE;
+
+    public AllyFreeze(Mob mob) {
+        this.mob = mob;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Suspends goal and target selection. Does nothing if already frozen.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        frozen = true;
+        mob.setTarget(null);
+        PathRequestQueue.cancel(mob);
+        mob.getNavigation().stop();
+        stash(mob.goalSelector, goals, true);
+        stash(mob.targetSelector, targetGoals, false);
+    }
+
+    /**
+     * Puts the stashed goals back. Does nothing if not frozen.
+     */
+    public void wake() {
+        if (!frozen) {
+            return;
+        }
+        frozen = false;
+        wokeAt = mob.level().getGameTime();
+        restore(mob.goalSelector, goals);
+        restore(mob.targetSelector, targetGoals);
+    }
+
+    /**
+     * Checks whether a woken ally has been awake long enough to be frozen again.
+     */
+    public boolean canRefreeze() {
+        return !frozen && mob.level().getGameTime() - wokeAt >= MIN_AWAKE_TICKS;
+    }
+
+    private static void stash(GoalSelector selector, List<StashedGoal> into, boolean keepFloat) {
+        for (WrappedGoal wrapped : new ArrayList<>(selector.getAvailableGoals())) {
+            if (keepFloat && wrapped.getGoal() instanceof FloatGoal) {
+                continue;
+            }
+            into.add(new StashedGoal(wrapped.getPriority(), wrapped.getGoal()));
+            // removeGoal also stops the goal if it is running
+            selector.removeGoal(wrapped.getGoal());
+        }
+    }
+
+    private static void restore(GoalSelector selector, List<StashedGoal> from) {
+        for (StashedGoal stashed : from) {
+            selector.addGoal(stashed.priority(), stashed.goal());
+        }
+        from.clear();
+    }
+
+    /**
+     * Wakes a frozen ally when it is attacked.
+     * Attacks already cancelled (e.g. friendly fire) are ignored.
+     */
+    @SubscribeEvent(priority = EventPriority.LOW)
+    public static void onLivingAttack(LivingAttackEvent event) {
+        wakeIfFrozen(event.getEntity());
+    }
+
+    /**
+     * Wakes a frozen ally when a mob picks it as a target.
+     * Friendly targets were already vetoed by {@link AllyManager}.
+     */
+    @SubscribeEvent(priority = EventPriority.LOW)
+    public static void onChangeTarget(LivingChangeTargetEvent event) {
+        if (event.getNewTarget() != null) {
+            wakeIfFrozen(event.getNewTarget());
+        }
+    }
+
+    private static void wakeIfFrozen(LivingEntity entity) {
+        if (entity.level().isClientSide()) {
+            return;
+        }
+        AllyStateHolder holder = AllyManager.getHolder(entity);
+        if (holder != null && holder.getFreeze() != null) {
+            holder.getFreeze().wake();
+        }
+    }
+
+    private record StashedGoal(int priority, Goal goal) {
+    }
+}
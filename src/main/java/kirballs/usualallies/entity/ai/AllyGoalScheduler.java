@@ -0,0 +1,98 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.util.AllyManager;
+import kirballs.usualallies.util.AllyStateHolder;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Mob;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Spreads the full canUse checks of the ally command goals across ticks.
+ * After a full check an ally is due again once {@link #getInterval()} ticks
+ * (times its {@link AllyDetail} tier multiplier) have passed; goals skip
+ * their checks until then. The deadline is elapsed game time rather than a
+ * tick modulo, because vanilla only evaluates canUse on every other tick.
+ * An ally's first deadline is offset by its entity id, so allies loaded
+ * together don't all check on the same ticks.
+ *
+ * The interval starts at {@code goalCheckInterval} and is stretched towards
+ * {@code goalCheckMaxInterval} while the server's average tick time is above
+ * {@code goalCheckTargetMspt}. Checks run and skipped are counted for
+ * {@code /usualallies stats}.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class AllyGoalScheduler {
+
+    // Current check interval in ticks, recomputed every server tick
+    private static int interval = 1;
+
+    private static long checksRun;
+    private static long checksSkipped;
+
+    /**
+     * Checks whether a goal of this ally should run its full checks this tick,
+     * and counts the outcome.
+     * 
+     * @param ally The allied mob
+     * @return True if the ally is due this tick
+     */
+    public static boolean isDue(Mob ally) {
+        AllyStateHolder holder = AllyManager.getHolder(ally);
+        if (holder == null) {
+            checksRun++;
+            return true;
+        }
+        long now = ally.level().getGameTime();
+        AllyDetail detail = holder.getDetail();
+        int allyInterval = interval * (detail != null ? detail.getTier().getMultiplier() : 1);
+        if (holder.getNextGoalCheck() == 0) {
+            // First check of this entity instance: stagger by entity id
+            holder.setNextGoalCheck(now + ally.getId() % allyInterval);
+        }
+        if (now >= holder.getNextGoalCheck()) {
+            holder.setNextGoalCheck(now + allyInterval);
+            checksRun++;
+            return true;
+        }
+        checksSkipped++;
+        return false;
+    }
+
+    public static int getInterval() {
+        return interval;
+    }
+
+    public static long getChecksRun() {
+        return checksRun;
+    }
+
+    public static long getChecksSkipped() {
+        return checksSkipped;
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.START) {
+            return;
+        }
+        int base = ModConfigs.GOAL_CHECK_INTERVAL.get();
+        int max = Math.max(base, ModConfigs.GOAL_CHECK_MAX_INTERVAL.get());
+        double mspt = event.getServer().getAverageTickTime();
+        double target = ModConfigs.GOAL_CHECK_TARGET_MSPT.get();
+        
+        // Stretch in proportion to how far the tick time overshoots the target
+        interval = mspt <= target ? base : Mth.clamp((int) Math.ceil(base * mspt / target), base, max);
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        interval = 1;
+        checksRun = 0;
+        checksSkipped = 0;
+    }
+}
@@ -1,20 +1,21 @@
 package kirballs.usualallies.entity.ai;
 
-import kirballs.usualallies.util.AllyCommand;
+import kirballs.usualallies.ModConfigs;
 import kirballs.usualallies.util.AllyManager;
 import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
 import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.ai.goal.Goal;
-import net.minecraft.world.level.pathfinder.BlockPathTypes;
-import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+import net.minecraft.world.level.pathfinder.Path;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.EnumSet;
 
 /**
  * AI Goal for allied mobs to patrol around a center point.
- * Only active when the ally's command is set to PATROL.
- * The mob will wander within a radius and avoid walls.
+ * Only registered while the ally's command is set to PATROL.
+ * The mob will wander within a radius and avoid walls, or walk a fixed
+ * ring of waypoints with cached paths when {@code routePatrol} is enabled.
  */
 public class AllyPatrolGoal extends Goal {
 
@@ -26,17 +27,19 @@ public class AllyPatrolGoal extends Goal {
     // Speed when patrolling
     private final double speedModifier;
     
-    // Center of patrol area (stored in persistent data)
+    // Center of patrol area (stored on the ally state)
     private BlockPos patrolCenter;
     
     // Current target position
     private Vec3 targetPos;
     
-    // Ticks until next move
-    private int cooldown;
+    // Game time of the next patrol move (a deadline, so it doesn't depend on how often canUse runs)
+    private long nextMoveTime;
     
-    // NBT key for storing patrol center
-    private static final String PATROL_CENTER_TAG = "PatrolCenter";
+    // Route patrol: the route in use and the waypoint the ally is at (or heading back to)
+    private PatrolRoute route;
+    private int routeIndex = -1;
+    private boolean offRoute;
 
     /**
      * Creates a new patrol goal for an allied mob.
@@ -54,60 +57,46 @@ public class AllyPatrolGoal extends Goal {
 
     @Override
     public boolean canUse() {
-        // Check if this mob is an ally
-        if (!AllyManager.isAlly(ally)) {
+        // Full checks are spread across ticks by the scheduler
+        if (ally.level().getGameTime() < nextMoveTime || !AllyGoalScheduler.isDue(ally)) {
             return false;
         }
         
-        // Check if command is PATROL
-        AllyCommand command = AllyManager.getCommand(ally);
-        if (command != AllyCommand.PATROL) {
-            return false;
-        }
-        
-        // Get or set patrol center
+        // Get or set patrol center (re-read so a center moved by the owner is picked up)
+        loadPatrolCenter();
         if (patrolCenter == null) {
-            loadPatrolCenter();
-            if (patrolCenter == null) {
-                // Set current position as patrol center
-                patrolCenter = ally.blockPosition();
-                savePatrolCenter();
-            }
+            // Set current position as patrol center
+            patrolCenter = ally.blockPosition();
+            savePatrolCenter();
         }
         
-        return cooldown-- <= 0;
+        return true;
     }
 
     @Override
     public boolean canContinueToUse() {
-        // Stop if no longer an ally or command changed
-        if (!AllyManager.isAlly(ally)) {
-            return false;
-        }
-        
-        AllyCommand command = AllyManager.getCommand(ally);
-        if (command != AllyCommand.PATROL) {
-            return false;
-        }
-        
-        // Continue until we reach the target
-        return !ally.getNavigation().isDone();
+        // Command changes remove this goal; continue until the queued path ran and we reach the target
+        return PathRequestQueue.isPending(ally) || !ally.getNavigation().isDone();
     }
 
     @Override
     public void start() {
-        // Find a random position within patrol radius
-        targetPos = findPatrolTarget();
-        if (targetPos != null) {
-            ally.getNavigation().moveTo(targetPos.x, targetPos.y, targetPos.z, speedModifier);
+        if (!ModConfigs.ROUTE_PATROL.get() || !startRouteLeg()) {
+            // Find a random position within patrol radius
+            targetPos = findPatrolTarget();
+            if (targetPos != null) {
+                PathRequestQueue.request(ally, targetPos.x, targetPos.y, targetPos.z, speedModifier,
+                        PathRequestQueue.Priority.PATROL);
+            }
         }
         
         // Set cooldown for next patrol move (5-10 seconds)
-        cooldown = ally.getRandom().nextInt(100) + 100;
+        nextMoveTime = ally.level().getGameTime() + ally.getRandom().nextInt(100) + 100;
     }
 
     @Override
     public void stop() {
+        PathRequestQueue.cancel(ally);
         ally.getNavigation().stop();
     }
 
@@ -120,64 +109,76 @@ public class AllyPatrolGoal extends Goal {
     }
     
     /**
-     * Finds a valid patrol target within the patrol radius.
+     * Starts the next leg of a route patrol. From a waypoint the cached path
+     * to the next one is replayed, or computed and cached if missing; an
+     * ally away from the route first walks back to its waypoint.
+     * 
+     * @return False if no route could be placed around the center
      */
-    private Vec3 findPatrolTarget() {
-        for (int attempts = 0; attempts < 10; attempts++) {
-            // Random offset within patrol radius
-            double xOffset = (ally.getRandom().nextDouble() * 2 - 1) * patrolRadius;
-            double zOffset = (ally.getRandom().nextDouble() * 2 - 1) * patrolRadius;
-            
-            double targetX = patrolCenter.getX() + 0.5 + xOffset;
-            double targetZ = patrolCenter.getZ() + 0.5 + zOffset;
-            double targetY = patrolCenter.getY();
-            
-            BlockPos targetBlockPos = new BlockPos((int)targetX, (int)targetY, (int)targetZ);
-            
-            // Find valid Y position
-            targetBlockPos = findValidYPosition(targetBlockPos);
-            if (targetBlockPos == null) {
-                continue;
-            }
-            
-            // Check if this position is walkable
-            if (isPositionValid(targetBlockPos)) {
-                return new Vec3(targetBlockPos.getX() + 0.5, targetBlockPos.getY(), targetBlockPos.getZ() + 0.5);
+    private boolean startRouteLeg() {
+        PatrolRoute current = PatrolRoute.get(ally, patrolCenter, Mth.ceil(patrolRadius));
+        if (current == null) {
+            return false;
+        }
+        if (current != route) {
+            route = current;
+            routeIndex = current.nearestWaypoint(ally.blockPosition());
+            offRoute = false;
+        }
+        
+        if (!route.isAtWaypoint(ally, routeIndex)) {
+            // Give up on a waypoint we already failed to reach once
+            if (offRoute) {
+                routeIndex = (routeIndex + 1) % route.size();
             }
+            offRoute = true;
+            BlockPos waypoint = route.getWaypoint(routeIndex);
+            targetPos = Vec3.atBottomCenterOf(waypoint);
+            PathRequestQueue.request(ally, targetPos.x, targetPos.y, targetPos.z, speedModifier,
+                    PathRequestQueue.Priority.PATROL);
+            return true;
         }
+        offRoute = false;
         
-        return null;
+        int from = routeIndex;
+        PatrolRoute legRoute = route;
+        routeIndex = (from + 1) % route.size();
+        targetPos = Vec3.atBottomCenterOf(route.getWaypoint(routeIndex));
+        
+        Path cached = route.replay(from);
+        if (cached != null) {
+            ally.getNavigation().moveTo(cached, speedModifier);
+        } else {
+            PathRequestQueue.request(ally, targetPos.x, targetPos.y, targetPos.z, speedModifier,
+                    PathRequestQueue.Priority.PATROL, path -> legRoute.store(from, path));
+        }
+        return true;
     }
     
     /**
-     * Finds a valid Y position (ground level) for the given X/Z coordinates.
+     * Finds a valid patrol target within the patrol radius.
+     * Candidate spots come from the center's shared {@link PatrolArea};
+     * only the room for this mob's size is checked here.
      */
-    private BlockPos findValidYPosition(BlockPos pos) {
-        // Search up and down for valid ground
-        for (int yOffset = -3; yOffset <= 3; yOffset++) {
-            BlockPos checkPos = pos.offset(0, yOffset, 0);
-            BlockPathTypes pathType = WalkNodeEvaluator.getBlockPathTypeStatic(
-                    ally.level(), checkPos.mutable());
-            
-            if (pathType == BlockPathTypes.WALKABLE) {
-                return checkPos;
+    private Vec3 findPatrolTarget() {
+        PatrolArea area = PatrolArea.get(ally.level(), patrolCenter, Mth.ceil(patrolRadius));
+        for (int attempts = 0; attempts < 3; attempts++) {
+            BlockPos spot = area.sample(ally.getRandom());
+            if (spot == null) {
+                return null;
+            }
+            if (hasRoomAt(spot)) {
+                return new Vec3(spot.getX() + 0.5, spot.getY(), spot.getZ() + 0.5);
             }
         }
+        
         return null;
     }
     
     /**
-     * Checks if a position is valid for the mob to move to.
+     * Checks if there's room for the mob at a walkable position.
      */
-    private boolean isPositionValid(BlockPos pos) {
-        BlockPathTypes pathType = WalkNodeEvaluator.getBlockPathTypeStatic(
-                ally.level(), pos.mutable());
-        
-        if (pathType != BlockPathTypes.WALKABLE) {
-            return false;
-        }
-        
-        // Check if there's room for the mob
+    private boolean hasRoomAt(BlockPos pos) {
         return ally.level().noCollision(ally, ally.getBoundingBox().move(
                 pos.getX() - ally.getX(),
                 pos.getY() - ally.getY(),
@@ -185,24 +186,18 @@ public class AllyPatrolGoal extends Goal {
     }
     
     /**
-     * Loads the patrol center from persistent data.
+     * Loads the patrol center from the ally state.
      */
     private void loadPatrolCenter() {
-        if (ally.getPersistentData().contains(PATROL_CENTER_TAG)) {
-            int[] coords = ally.getPersistentData().getIntArray(PATROL_CENTER_TAG);
-            if (coords.length == 3) {
-                patrolCenter = new BlockPos(coords[0], coords[1], coords[2]);
-            }
-        }
+        patrolCenter = AllyManager.getPatrolCenter(ally);
     }
     
     /**
-     * Saves the patrol center to persistent data.
+     * Saves the patrol center to the ally state.
      */
     private void savePatrolCenter() {
         if (patrolCenter != null) {
-            ally.getPersistentData().putIntArray(PATROL_CENTER_TAG, 
-                    new int[]{patrolCenter.getX(), patrolCenter.getY(), patrolCenter.getZ()});
+            AllyManager.setPatrolCenter(ally, patrolCenter);
         }
     }
     
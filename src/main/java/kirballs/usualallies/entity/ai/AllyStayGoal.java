@@ -1,7 +1,5 @@
 package kirballs.usualallies.entity.ai;
 
-import kirballs.usualallies.util.AllyCommand;
-import kirballs.usualallies.util.AllyManager;
 import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.ai.goal.Goal;
 
@@ -9,7 +7,9 @@ import java.util.EnumSet;
 
 /**
  * AI Goal for allied mobs to stay in place.
- * Only active when the ally's command is set to STAY.
+ * Only registered while the ally's command is set to STAY.
+ * Most of the time a staying ally is frozen (see {@link AllyFreeze}) and this
+ * goal doesn't run at all; it holds the ally in place while it is awake.
  */
 public class AllyStayGoal extends Goal {
 
@@ -28,32 +28,19 @@ public class AllyStayGoal extends Goal {
 
     @Override
     public boolean canUse() {
-        // Check if this mob is an ally
-        if (!AllyManager.isAlly(ally)) {
-            return false;
-        }
-        
-        // Check if command is STAY
-        AllyCommand command = AllyManager.getCommand(ally);
-        return command == AllyCommand.STAY;
+        // Only registered while the command is STAY (see AllyCommandGoals), and
+        // only runs while the ally is awake; let it fight if something woke it
+        return ally.getTarget() == null;
     }
 
     @Override
     public boolean canContinueToUse() {
-        return canUse();
+        return ally.getTarget() == null;
     }
 
     @Override
     public void start() {
-        // Stop any current navigation
+        // Stop any current navigation; holding the MOVE flag keeps other movement goals out
         ally.getNavigation().stop();
     }
-
-    @Override
-    public void tick() {
-        // Keep stopping movement
-        ally.getNavigation().stop();
-        // Reset movement
-        ally.setDeltaMovement(ally.getDeltaMovement().multiply(0, 1, 0));
-    }
 }
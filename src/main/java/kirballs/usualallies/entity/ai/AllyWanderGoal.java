@@ -0,0 +1,183 @@
+package kirballs.usualallies.entity.ai;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.goal.Goal;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.EnumSet;
+
+/**
+ * AI Goal for allied mobs to wander around where they are.
+ * Only registered while the ally's command is set to WANDER.
+ * Every few seconds the mob picks a walkable spot a few blocks away inside
+ * its current chunk and queues a path there with a reduced node limit, so
+ * wandering never loads neighbouring chunks or runs long path searches.
+ */
+public class AllyWanderGoal extends Goal {
+
+    // Blocks from the mob a wander spot may be, horizontally and vertically
+    private static final int WANDER_RANGE = 6;
+    private static final int WANDER_HEIGHT = 2;
+
+    // Columns tried per wander move
+    private static final int ATTEMPTS = 3;
+
+    // Share of the navigation's usual node limit a wander search may visit
+    private static final float NODE_MULTIPLIER = 0.25f;
+
+    // PathNavigation.maxVisitedNodesMultiplier (private, no getter); null if not found
+    @Nullable
+    private static final Field NODES_MULTIPLIER = findNodesMultiplier();
+
+    private final Mob ally;
+
+    // Speed when wandering
+    private final double speedModifier;
+
+    // Game time of the next wander move (a deadline, so it doesn't depend on how often canUse runs)
+    private long nextMoveTime;
+
+    // Spot picked by canUse for start to walk to
+    private BlockPos wanderPos;
+
+    // Navigation node limit multiplier in place before start, restored by stop
+    private float oldNodesMultiplier = 1.0f;
+
+    /**
+     * Creates a new wander goal for an allied mob.
+     *
+     * @param ally The allied mob
+     * @param speedModifier Speed when wandering (1.0 = normal speed)
+     */
+    public AllyWanderGoal(Mob ally, double speedModifier) {
+        this.ally = ally;
+        this.speedModifier = speedModifier;
+        this.setFlags(EnumSet.of(Goal.Flag.MOVE));
+    }
+
+    @Override
+    public boolean canUse() {
+        // Full checks are spread across ticks by the scheduler
+        if (ally.level().getGameTime() < nextMoveTime || !AllyGoalScheduler.isDue(ally)) {
+            return false;
+        }
+        if (ally.isVehicle() || ally.isPassenger() || ally.getTarget() != null) {
+            return false;
+        }
+
+        // Wait out a full cooldown even if no spot was found, rather than probing again next check
+        scheduleNextMove();
+        wanderPos = findWanderPos();
+        return wanderPos != null;
+    }
+
+    @Override
+    public boolean canContinueToUse() {
+        // Command changes remove this goal; continue until the queued path ran and we arrive
+        return ally.getTarget() == null && (PathRequestQueue.isPending(ally) || !ally.getNavigation().isDone());
+    }
+
+    @Override
+    public void start() {
+        oldNodesMultiplier = getNodesMultiplier();
+        ally.getNavigation().setMaxVisitedNodesMultiplier(NODE_MULTIPLIER);
+        PathRequestQueue.request(ally, wanderPos.getX() + 0.5, wanderPos.getY(), wanderPos.getZ() + 0.5,
+                speedModifier, PathRequestQueue.Priority.WANDER);
+    }
+
+    @Override
+    public void stop() {
+        PathRequestQueue.cancel(ally);
+        ally.getNavigation().stop();
+        ally.getNavigation().setMaxVisitedNodesMultiplier(oldNodesMultiplier);
+        wanderPos = null;
+    }
+
+    /**
+     * Reads the navigation's node limit multiplier, which has no getter.
+     *
+     * @return The multiplier, or 1.0 (the default) if it can't be read
+     */
+    private float getNodesMultiplier() {
+        if (NODES_MULTIPLIER != null) {
+            try {
+                return NODES_MULTIPLIER.getFloat(ally.getNavigation());
+            } catch (IllegalAccessException e) {
+                // Fall through to the default
+            }
+        }
+        return 1.0f;
+    }
+
+    /**
+     * Finds PathNavigation.maxVisitedNodesMultiplier, its only private float field.
+     */
+    @Nullable
+    private static Field findNodesMultiplier() {
+        Field found = null;
+        for (Field field : PathNavigation.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (field.getType() == float.class && Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers)) {
+                if (found != null) {
+                    return null;
+                }
+                found = field;
+            }
+        }
+        try {
+            if (found != null) {
+                found.setAccessible(true);
+            }
+            return found;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the cooldown for the next wander move (4-10 seconds).
+     */
+    private void scheduleNextMove() {
+        nextMoveTime = ally.level().getGameTime() + 80 + ally.getRandom().nextInt(120);
+    }
+
+    /**
+     * Picks a walkable spot near the mob, inside its current chunk.
+     *
+     * @return The spot, or null if none of the tried columns had one
+     */
+    private BlockPos findWanderPos() {
+        BlockPos origin = ally.blockPosition();
+        ChunkPos chunk = new ChunkPos(origin);
+        int minX = Math.max(chunk.getMinBlockX(), origin.getX() - WANDER_RANGE);
+        int maxX = Math.min(chunk.getMaxBlockX(), origin.getX() + WANDER_RANGE);
+        int minZ = Math.max(chunk.getMinBlockZ(), origin.getZ() - WANDER_RANGE);
+        int maxZ = Math.min(chunk.getMaxBlockZ(), origin.getZ() + WANDER_RANGE);
+
+        BlockPos.MutableBlockPos probe = new BlockPos.MutableBlockPos();
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            int x = Mth.randomBetweenInclusive(ally.getRandom(), minX, maxX);
+            int z = Mth.randomBetweenInclusive(ally.getRandom(), minZ, maxZ);
+            if (Math.abs(x - origin.getX()) < 2 && Math.abs(z - origin.getZ()) < 2) {
+                continue;
+            }
+            // Top down, so the mob prefers the surface it is on over a cave below
+            for (int dy = WANDER_HEIGHT; dy >= -WANDER_HEIGHT; dy--) {
+                // The check moves the probe, so the spot is rebuilt from its coordinates
+                probe.set(x, origin.getY() + dy, z);
+                if (WalkNodeEvaluator.getBlockPathTypeStatic(ally.level(), probe) == BlockPathTypes.WALKABLE) {
+                    return new BlockPos(x, origin.getY() + dy, z);
+                }
+            }
+        }
+        return null;
+    }
+}
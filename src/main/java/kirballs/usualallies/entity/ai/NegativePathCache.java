@@ -0,0 +1,146 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.Mob;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Short-lived record of path searches that failed, keyed by the chunk
+ * sections of the searching mob and of its target.
+ *
+ * After a search from one section to another fails (no path, a path that
+ * stops short, or a mob that stops making progress), further searches
+ * between the same two sections are skipped for a backoff time that
+ * doubles with every further failure, from {@link #BASE_BACKOFF_TICKS} up
+ * to {@link #MAX_BACKOFF_TICKS}. A target that moves to another section is
+ * a new pair and is searched for right away; a successful search clears
+ * the pair.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class NegativePathCache {
+
+    private static final int BASE_BACKOFF_TICKS = 20;
+    private static final int MAX_BACKOFF_TICKS = 640;
+
+    // Entries whose backoff ran out this long ago are dropped
+    private static final int EXPIRE_TICKS = 1200;
+
+    private static final Map<ServerLevel, Map<Key, Entry>> CACHES = new IdentityHashMap<>();
+
+    private static long searchesSkipped;
+    private static long failuresRecorded;
+
+    /**
+     * Checks whether a search from a mob to a target is still backing off,
+     * and counts the skip if it is.
+     *
+     * @param mob The searching mob
+     * @param target The entity it wants to reach
+     * @return True if the search should be skipped for now
+     */
+    public static boolean isBlocked(Mob mob, Entity target) {
+        if (!(mob.level() instanceof ServerLevel serverLevel)) {
+            return false;
+        }
+        Map<Key, Entry> cache = CACHES.get(serverLevel);
+        Entry entry = cache != null ? cache.get(Key.of(mob, target)) : null;
+        if (entry != null && serverLevel.getGameTime() < entry.retryAt) {
+            searchesSkipped++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a failed search and extends the backoff for its section pair.
+     *
+     * @param mob The searching mob
+     * @param target The entity it couldn't reach
+     */
+    public static void recordFailure(Mob mob, Entity target) {
+        if (!(mob.level() instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        failuresRecorded++;
+        Entry entry = CACHES.computeIfAbsent(serverLevel, k -> new HashMap<>())
+                .computeIfAbsent(Key.of(mob, target), k -> new Entry());
+        int backoff = Math.min(MAX_BACKOFF_TICKS, BASE_BACKOFF_TICKS << Math.min(entry.failures, 5));
+        entry.failures++;
+        entry.retryAt = serverLevel.getGameTime() + backoff;
+    }
+
+    /**
+     * Clears the backoff of a section pair after a search succeeded.
+     *
+     * @param mob The searching mob
+     * @param target The entity it reached a path to
+     */
+    public static void recordSuccess(Mob mob, Entity target) {
+        if (mob.level() instanceof ServerLevel serverLevel) {
+            Map<Key, Entry> cache = CACHES.get(serverLevel);
+            if (cache != null) {
+                cache.remove(Key.of(mob, target));
+            }
+        }
+    }
+
+    public static long getSearchesSkipped() {
+        return searchesSkipped;
+    }
+
+    public static long getFailuresRecorded() {
+        return failuresRecorded;
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != LogicalSide.SERVER
+                || !(event.level instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        long now = serverLevel.getGameTime();
+        Map<Key, Entry> cache = CACHES.get(serverLevel);
+        if (cache != null && now % EXPIRE_TICKS == 0) {
+            cache.values().removeIf(entry -> now - entry.retryAt > EXPIRE_TICKS);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            CACHES.remove(serverLevel);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CACHES.clear();
+        searchesSkipped = 0;
+        failuresRecorded = 0;
+    }
+
+    private record Key(long from, long to) {
+
+        private static Key of(Mob mob, Entity target) {
+            return new Key(SectionPos.asLong(mob.blockPosition()), SectionPos.asLong(target.blockPosition()));
+        }
+    }
+
+    private static class Entry {
+
+        private int failures;
+        private long retryAt;
+    }
+}
@@ -0,0 +1,241 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.core.BlockPos;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Walking distance field around one owner, shared by all of the owner's
+ * followers. A breadth-first search from the owner's feet labels every
+ * reachable column within {@code flowFieldRadius} with its step distance;
+ * a follower then only has to move to its neighbouring cell with the
+ * lowest distance, instead of running its own path search.
+ *
+ * The field is 2.5D: each column keeps the single floor height the search
+ * reached it at (stepping at most one block up or down per cell), so
+ * followers on another level of a multi-storey column fall back to normal
+ * pathfinding. Cells need two blocks of headroom and a floor that isn't
+ * a fence or wall top. Fields are rebuilt at most once per {@code flowFieldRefresh}
+ * ticks per owner.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class OwnerFlowField {
+
+    private static final short UNREACHED = -1;
+
+    // Neighbour offsets: 4 orthogonal, then 4 diagonal
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    // Floor height changes tried when stepping into a column: level, up, down
+    private static final int[] STEP_DY = {0, 1, -1};
+
+    // Owner UUID -> that owner's current field
+    private static final Map<UUID, OwnerFlowField> FIELDS = new HashMap<>();
+
+    private static long fieldsBuilt;
+
+    private final Level level;
+    private final int radius;
+    private final int size;
+    private final long builtAt;
+
+    // Grid origin (owner's floor cell) and per-cell data, indexed by cellIndex
+    private final int originX;
+    private final int originZ;
+    private final short[] distance;
+    private final int[] floorY;
+
+    private OwnerFlowField(Level level, BlockPos origin, int radius, long builtAt) {
+        this.level = level;
+        this.radius = radius;
+        this.size = radius * 2 + 1;
+        this.builtAt = builtAt;
+        this.originX = origin.getX();
+        this.originZ = origin.getZ();
+        this.distance = new short[size * size];
+        this.floorY = new int[size * size];
+        Arrays.fill(distance, UNREACHED);
+    }
+
+    /**
+     * Gets the field around an owner, rebuilding it if it is older than the
+     * refresh window or was built in another level.
+     *
+     * @param owner The owner being followed
+     * @return The owner's field, or null if the owner isn't standing on walkable ground
+     */
+    @Nullable
+    public static OwnerFlowField get(Player owner) {
+        long now = owner.level().getGameTime();
+        OwnerFlowField field = FIELDS.get(owner.getUUID());
+        if (field != null && field.level == owner.level()
+                && now - field.builtAt < ModConfigs.FLOW_FIELD_REFRESH.get()) {
+            return field.isEmpty() ? null : field;
+        }
+
+        field = build(owner, now);
+        FIELDS.put(owner.getUUID(), field);
+        return field.isEmpty() ? null : field;
+    }
+
+    /**
+     * Gets the number of fields built since the server started.
+     */
+    public static long getFieldsBuilt() {
+        return fieldsBuilt;
+    }
+
+    private static OwnerFlowField build(Player owner, long now) {
+        fieldsBuilt++;
+        Level level = owner.level();
+        int radius = ModConfigs.FLOW_FIELD_RADIUS.get();
+        BlockPos.MutableBlockPos probe = new BlockPos.MutableBlockPos();
+
+        // Start from the ground under the owner (they may be mid-jump)
+        BlockPos feet = owner.blockPosition();
+        int startY = Integer.MIN_VALUE;
+        for (int dy = 0; dy >= -3; dy--) {
+            if (isWalkable(level, probe.set(feet.getX(), feet.getY() + dy, feet.getZ()))) {
+                startY = feet.getY() + dy;
+                break;
+            }
+        }
+
+        OwnerFlowField field = new OwnerFlowField(level, feet, radius, now);
+        if (startY == Integer.MIN_VALUE) {
+            return field;
+        }
+
+        // Breadth-first search over columns, orthogonal steps only
+        int[] queue = new int[field.size * field.size];
+        int head = 0;
+        int tail = 0;
+        int start = field.cellIndex(feet.getX(), feet.getZ());
+        field.distance[start] = 0;
+        field.floorY[start] = startY;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int cx = cell % field.size - radius + field.originX;
+            int cz = cell / field.size - radius + field.originZ;
+            int cy = field.floorY[cell];
+            for (int i = 0; i < 4; i++) {
+                int nx = cx + DX[i];
+                int nz = cz + DZ[i];
+                int next = field.cellIndex(nx, nz);
+                if (next < 0 || field.distance[next] != UNREACHED) {
+                    continue;
+                }
+                // Same height first, then a step up, then a step down
+                for (int dy : STEP_DY) {
+                    if (isWalkable(level, probe.set(nx, cy + dy, nz))) {
+                        field.distance[next] = (short) (field.distance[cell] + 1);
+                        field.floorY[next] = cy + dy;
+                        queue[tail++] = next;
+                        break;
+                    }
+                }
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Checks whether a mob up to one block wide and two blocks tall can stand at a position.
+     * Path types count the air above fences and walls as floor, so those are ruled out here.
+     */
+    private static boolean isWalkable(Level level, BlockPos.MutableBlockPos pos) {
+        // getBlockPathTypeStatic moves the position it is given, so each probe gets its own
+        int x = pos.getX();
+        int y = pos.getY();
+        int z = pos.getZ();
+        if (WalkNodeEvaluator.getBlockPathTypeStatic(level, new BlockPos.MutableBlockPos(x, y, z)) != BlockPathTypes.WALKABLE
+                || WalkNodeEvaluator.getBlockPathTypeStatic(level, new BlockPos.MutableBlockPos(x, y + 1, z)) != BlockPathTypes.OPEN) {
+            return false;
+        }
+        BlockState floor = level.getBlockState(new BlockPos(x, y - 1, z));
+        return !floor.is(BlockTags.FENCES) && !floor.is(BlockTags.WALLS) && !floor.is(BlockTags.FENCE_GATES);
+    }
+
+    /**
+     * Picks the next cell a follower standing at {@code pos} should walk to.
+     *
+     * @param pos The follower's block position
+     * @return The floor position of the neighbouring cell closest to the owner,
+     *         or null if the follower is outside the field
+     */
+    @Nullable
+    public BlockPos nextStep(BlockPos pos) {
+        int cell = cellIndex(pos.getX(), pos.getZ());
+        if (cell < 0 || distance[cell] == UNREACHED || Math.abs(floorY[cell] - pos.getY()) > 1) {
+            return null;
+        }
+
+        int best = cell;
+        for (int i = 0; i < DX.length; i++) {
+            int next = cellIndex(pos.getX() + DX[i], pos.getZ() + DZ[i]);
+            if (next < 0 || distance[next] == UNREACHED || distance[next] >= distance[best]) {
+                continue;
+            }
+            // Diagonals only when both orthogonal neighbours are open, so corners aren't cut
+            if (i >= 4 && (!isReached(pos.getX() + DX[i], pos.getZ()) || !isReached(pos.getX(), pos.getZ() + DZ[i]))) {
+                continue;
+            }
+            best = next;
+        }
+
+        int x = best % size - radius + originX;
+        int z = best / size - radius + originZ;
+        return new BlockPos(x, floorY[best], z);
+    }
+
+    private boolean isReached(int x, int z) {
+        int cell = cellIndex(x, z);
+        return cell >= 0 && distance[cell] != UNREACHED;
+    }
+
+    private boolean isEmpty() {
+        return distance[cellIndex(originX, originZ)] == UNREACHED;
+    }
+
+    /**
+     * Gets the array index of a column, or -1 if it is outside the field.
+     */
+    private int cellIndex(int x, int z) {
+        int gx = x - originX + radius;
+        int gz = z - originZ + radius;
+        if (gx < 0 || gz < 0 || gx >= size || gz >= size) {
+            return -1;
+        }
+        return gz * size + gx;
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        FIELDS.remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        FIELDS.clear();
+        fieldsBuilt = 0;
+    }
+}
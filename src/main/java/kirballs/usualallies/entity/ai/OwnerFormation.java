@@ -0,0 +1,165 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.util.AllyCommand;
+import kirballs.usualallies.util.AllyManager;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.*;
+
+/**
+ * Formation slots around one owner, so followers spread out in rings
+ * instead of all walking to the owner's exact position and piling into
+ * a blob that vanilla entity pushing then has to untangle every tick.
+ *
+ * Slot i keeps a fixed offset from the formation's anchor: ring k holds
+ * {@code 6 * (k + 1)} slots at {@code 2 + 1.5 * k} blocks. The anchor only
+ * moves (and slot floor heights are only re-probed) once the owner is more
+ * than {@code formationRecomputeDistance} blocks from it. A follower keeps
+ * the lowest slot that was free when it first asked until it dies, is
+ * removed or stops following, so slots don't shuffle as the group moves.
+ * Departed followers are cleared on every lookup, so their inner slots
+ * go to newcomers.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class OwnerFormation {
+
+    private static final double FIRST_RING_RADIUS = 2.0;
+    private static final double RING_SPACING = 1.5;
+    private static final int SLOTS_PER_RING = 6;
+
+    // Blocks above and below the anchor searched for a slot's floor
+    private static final int FLOOR_SEARCH = 2;
+
+    // Owner UUID -> that owner's formation
+    private static final Map<UUID, OwnerFormation> FORMATIONS = new HashMap<>();
+
+    private Level level;
+    private Vec3 anchor;
+
+    // Follower -> slot index
+    private final Map<Mob, Integer> assignments = new IdentityHashMap<>();
+    private final BitSet usedSlots = new BitSet();
+
+    // Floor heights of slots, probed lazily per anchor; Integer.MIN_VALUE until probed
+    private int[] slotY = new int[0];
+
+    private OwnerFormation(Level level, Vec3 anchor) {
+        this.level = level;
+        this.anchor = anchor;
+    }
+
+    /**
+     * Gets a follower's slot position around its owner, assigning a slot on
+     * first use and moving the formation if the owner has moved far enough.
+     *
+     * @param owner The owner being followed
+     * @param mob The follower
+     * @return The slot position (block-centred, on the slot's floor if one was found)
+     */
+    public static Vec3 getSlot(Player owner, Mob mob) {
+        OwnerFormation formation = FORMATIONS.get(owner.getUUID());
+        if (formation == null) {
+            formation = new OwnerFormation(owner.level(), owner.position());
+            FORMATIONS.put(owner.getUUID(), formation);
+        } else {
+            formation.follow(owner);
+            formation.releaseStale();
+        }
+        return formation.slotFor(mob);
+    }
+
+    private void follow(Player owner) {
+        double threshold = ModConfigs.FORMATION_RECOMPUTE_DISTANCE.get();
+        if (owner.level() != level || owner.position().distanceToSqr(anchor) > threshold * threshold) {
+            level = owner.level();
+            anchor = owner.position();
+            Arrays.fill(slotY, Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Frees the slots of followers that died, were removed or no longer follow.
+     */
+    private void releaseStale() {
+        assignments.entrySet().removeIf(entry -> {
+            Mob mob = entry.getKey();
+            if (!mob.isAlive() || mob.isRemoved() || AllyManager.getCommand(mob) != AllyCommand.FOLLOW) {
+                usedSlots.clear(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private Vec3 slotFor(Mob mob) {
+        Integer slot = assignments.get(mob);
+        if (slot == null) {
+            slot = usedSlots.nextClearBit(0);
+            usedSlots.set(slot);
+            assignments.put(mob, slot);
+        }
+        if (slot >= slotY.length) {
+            int oldLength = slotY.length;
+            slotY = Arrays.copyOf(slotY, Math.max(slot + 1, oldLength * 2));
+            Arrays.fill(slotY, oldLength, slotY.length, Integer.MIN_VALUE);
+        }
+
+        // Ring k starts at slot 6 * k * (k + 1) / 2 and holds 6 * (k + 1) slots
+        int ring = 0;
+        int first = 0;
+        while (slot >= first + SLOTS_PER_RING * (ring + 1)) {
+            first += SLOTS_PER_RING * (ring + 1);
+            ring++;
+        }
+        int count = SLOTS_PER_RING * (ring + 1);
+        double radius = FIRST_RING_RADIUS + RING_SPACING * ring;
+        // Offset every other ring by half a slot so rings don't line up
+        double angle = Math.PI * 2.0 * (slot - first + (ring % 2) * 0.5) / count;
+        int x = Mth.floor(anchor.x + Math.cos(angle) * radius);
+        int z = Mth.floor(anchor.z + Math.sin(angle) * radius);
+
+        if (slotY[slot] == Integer.MIN_VALUE) {
+            slotY[slot] = findFloor(x, z);
+        }
+        return new Vec3(x + 0.5, slotY[slot], z + 0.5);
+    }
+
+    /**
+     * Finds the walkable cell nearest the anchor's height in a column.
+     */
+    private int findFloor(int x, int z) {
+        int anchorY = Mth.floor(anchor.y);
+        BlockPos.MutableBlockPos probe = new BlockPos.MutableBlockPos();
+        for (int i = 0; i <= FLOOR_SEARCH * 2; i++) {
+            // 0, +1, -1, +2, -2
+            int dy = (i + 1) / 2 * (i % 2 == 1 ? 1 : -1);
+            if (WalkNodeEvaluator.getBlockPathTypeStatic(level, probe.set(x, anchorY + dy, z)) == BlockPathTypes.WALKABLE) {
+                return anchorY + dy;
+            }
+        }
+        return anchorY;
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        FORMATIONS.remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        FORMATIONS.clear();
+    }
+}
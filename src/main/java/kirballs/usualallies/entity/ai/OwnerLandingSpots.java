@@ -0,0 +1,174 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Landing cells around one owner for followers teleporting to them, shared
+ * by all of the owner's followers for the current tick.
+ *
+ * The cells around the owner are probed in a random order, lazily, the
+ * first time a follower needs one in a tick; each walkable cell found is
+ * handed to at most one follower, so followers teleporting in the same
+ * tick never land on top of each other and never repeat each other's
+ * probes. Once every cell has been probed, later followers that tick
+ * get nothing and simply try again on their next recalculation.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class OwnerLandingSpots {
+
+    // Landing cells lie within this many blocks of the owner horizontally, but not right beside them
+    private static final int HORIZONTAL_RANGE = 3;
+    private static final int MIN_HORIZONTAL_DISTANCE = 2;
+    private static final int VERTICAL_RANGE = 1;
+
+    // Cells probed per claim at most (the old per-ally search tried 10 random offsets)
+    private static final int MAX_PROBES_PER_CLAIM = 10;
+
+    // Candidate offsets, packed as (dx, dy, dz) triples
+    private static final int[] OFFSETS = buildOffsets();
+
+    // Owner UUID -> that owner's spots for the tick they were built in
+    private static final Map<UUID, OwnerLandingSpots> SPOTS = new HashMap<>();
+
+    private static long cellsProbed;
+    private static long spotsClaimed;
+
+    private final Level level;
+    private final BlockPos origin;
+    private final long builtAt;
+
+    // Offset indices (into OFFSETS / 3) in probe order, and the next one to probe
+    private final int[] order;
+    private int cursor;
+
+    // Walkable cells some follower was too large for, still free for others
+    private final List<BlockPos> unclaimed = new ArrayList<>();
+
+    private OwnerLandingSpots(Level level, BlockPos origin, long builtAt, RandomSource random) {
+        this.level = level;
+        this.origin = origin;
+        this.builtAt = builtAt;
+        this.order = new int[OFFSETS.length / 3];
+        for (int i = 0; i < order.length; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+    }
+
+    /**
+     * Hands a landing cell near an owner to a teleporting follower. The cell
+     * is walkable, has room for the follower, and is not given to anyone else
+     * this tick.
+     *
+     * @param owner The owner being teleported to
+     * @param mob The follower
+     * @return The cell to land in, or null if none is left this tick
+     */
+    @Nullable
+    public static BlockPos claim(Player owner, Mob mob) {
+        long now = owner.level().getGameTime();
+        OwnerLandingSpots spots = SPOTS.get(owner.getUUID());
+        if (spots == null || spots.builtAt != now || spots.level != owner.level()) {
+            spots = new OwnerLandingSpots(owner.level(), owner.blockPosition(), now, owner.getRandom());
+            SPOTS.put(owner.getUUID(), spots);
+        }
+        return spots.claimFor(mob);
+    }
+
+    public static long getCellsProbed() {
+        return cellsProbed;
+    }
+
+    public static long getSpotsClaimed() {
+        return spotsClaimed;
+    }
+
+    private BlockPos claimFor(Mob mob) {
+        for (int i = 0; i < unclaimed.size(); i++) {
+            if (hasRoomAt(mob, unclaimed.get(i))) {
+                spotsClaimed++;
+                return unclaimed.remove(i);
+            }
+        }
+
+        BlockPos.MutableBlockPos probe = new BlockPos.MutableBlockPos();
+        for (int probes = 0; probes < MAX_PROBES_PER_CLAIM && cursor < order.length; probes++) {
+            int offset = order[cursor++] * 3;
+            probe.set(origin.getX() + OFFSETS[offset],
+                    origin.getY() + OFFSETS[offset + 1],
+                    origin.getZ() + OFFSETS[offset + 2]);
+            cellsProbed++;
+            // A copy, since the probe is moved by the check
+            if (WalkNodeEvaluator.getBlockPathTypeStatic(level, probe.mutable()) != BlockPathTypes.WALKABLE) {
+                continue;
+            }
+            BlockPos cell = probe.immutable();
+            if (hasRoomAt(mob, cell)) {
+                spotsClaimed++;
+                return cell;
+            }
+            unclaimed.add(cell);
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a mob's bounding box fits when standing centred in a cell.
+     */
+    private static boolean hasRoomAt(Mob mob, BlockPos cell) {
+        return mob.level().noCollision(mob, mob.getBoundingBox().move(
+                cell.getX() + 0.5 - mob.getX(),
+                cell.getY() - mob.getY(),
+                cell.getZ() + 0.5 - mob.getZ()));
+    }
+
+    private static int[] buildOffsets() {
+        List<int[]> offsets = new ArrayList<>();
+        for (int dx = -HORIZONTAL_RANGE; dx <= HORIZONTAL_RANGE; dx++) {
+            for (int dz = -HORIZONTAL_RANGE; dz <= HORIZONTAL_RANGE; dz++) {
+                if (Math.abs(dx) < MIN_HORIZONTAL_DISTANCE && Math.abs(dz) < MIN_HORIZONTAL_DISTANCE) {
+                    continue;
+                }
+                for (int dy = -VERTICAL_RANGE; dy <= VERTICAL_RANGE; dy++) {
+                    offsets.add(new int[]{dx, dy, dz});
+                }
+            }
+        }
+        int[] packed = new int[offsets.size() * 3];
+        for (int i = 0; i < offsets.size(); i++) {
+            System.arraycopy(offsets.get(i), 0, packed, i * 3, 3);
+        }
+        return packed;
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        SPOTS.remove(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        SPOTS.clear();
+        cellsProbed = 0;
+        spotsClaimed = 0;
+    }
+}
@@ -0,0 +1,327 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Per-level queue for the path searches of allies and Kirbs.
+ * Goals {@link #request} a path instead of calling
+ * {@code PathNavigation.moveTo} directly; at the start of each level tick
+ * queued requests are run in priority order until the tick's node budget
+ * ({@code pathNodeBudget}) is spent, and the rest wait for the next tick.
+ *
+ * A mob has at most one pending request: asking again before it ran
+ * replaces the destination (and raises the priority if needed) instead of
+ * queueing a second search. The mob's current path keeps being followed
+ * while the new one waits.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class PathRequestQueue {
+
+    /**
+     * Request priorities, most urgent first.
+     */
+    public enum Priority {
+        FOLLOW,
+        COMBAT,
+        PATROL,
+        WANDER
+    }
+
+    private static final Map<ServerLevel, PathRequestQueue> QUEUES = new IdentityHashMap<>();
+
+    // Metrics, summed over all levels since the server started
+    private static long requestsRun;
+    private static long requestsCoalesced;
+    private static long totalWaitTicks;
+    private static long maxWaitTicks;
+
+    // One bucket per priority; entries may be stale (see Request#queued)
+    private final List<ArrayDeque<Request>> buckets = new ArrayList<>();
+
+    // Each mob's pending request
+    private final Map<Mob, Request> pending = new IdentityHashMap<>();
+
+    private PathRequestQueue() {
+        for (int i = 0; i < Priority.values().length; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Queues a path to an entity. The path is computed towards wherever the
+     * entity is when the request runs.
+     *
+     * @param mob The mob to move
+     * @param target The entity to move to
+     * @param speed The speed modifier passed to the navigation
+     * @param priority The request priority
+     */
+    public static void request(Mob mob, Entity target, double speed, Priority priority) {
+        submit(mob, target, 0, 0, 0, speed, priority, null);
+    }
+
+    /**
+     * Queues a path to an entity and hands the search result to a callback
+     * before the mob starts following it (e.g. to detect unreachable targets).
+     *
+     * @param mob The mob to move
+     * @param target The entity to move to
+     * @param speed The speed modifier passed to the navigation
+     * @param priority The request priority
+     * @param onPath Called with the computed path, or null if no path was found
+     */
+    public static void request(Mob mob, Entity target, double speed, Priority priority,
+                               Consumer<Path> onPath) {
+        submit(mob, target, 0, 0, 0, speed, priority, onPath);
+    }
+
+    /**
+     * Queues a path to a position.
+     *
+     * @param mob The mob to move
+     * @param x Target x
+     * @param y Target y
+     * @param z Target z
+     * @param speed The speed modifier passed to the navigation
+     * @param priority The request priority
+     */
+    public static void request(Mob mob, double x, double y, double z, double speed, Priority priority) {
+        submit(mob, null, x, y, z, speed, priority, null);
+    }
+
+    /**
+     * Queues a path to a position and hands the computed path to a callback
+     * before the mob starts following it (e.g. to cache it).
+     *
+     * @param mob The mob to move
+     * @param x Target x
+     * @param y Target y
+     * @param z Target z
+     * @param speed The speed modifier passed to the navigation
+     * @param priority The request priority
+     * @param onPath Called with the computed path, or null if no path was found
+     */
+    public static void request(Mob mob, double x, double y, double z, double speed, Priority priority,
+                               Consumer<Path> onPath) {
+        submit(mob, null, x, y, z, speed, priority, onPath);
+    }
+
+    /**
+     * Checks whether a mob has a request waiting to run.
+     */
+    public static boolean isPending(Mob mob) {
+        PathRequestQueue queue = mob.level() instanceof ServerLevel serverLevel ? QUEUES.get(serverLevel) : null;
+        return queue != null && queue.pending.containsKey(mob);
+    }
+
+    /**
+     * Drops a mob's pending request, if any.
+     */
+    public static void cancel(Mob mob) {
+        PathRequestQueue queue = mob.level() instanceof ServerLevel serverLevel ? QUEUES.get(serverLevel) : null;
+        if (queue != null) {
+            Request request = queue.pending.remove(mob);
+            if (request != null) {
+                request.queued = false;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting in a level.
+     */
+    public static int getDepth(ServerLevel level) {
+        PathRequestQueue queue = QUEUES.get(level);
+        return queue != null ? queue.pending.size() : 0;
+    }
+
+    public static long getRequestsRun() {
+        return requestsRun;
+    }
+
+    public static long getRequestsCoalesced() {
+        return requestsCoalesced;
+    }
+
+    /**
+     * Gets the average number of ticks a request waited before running.
+     */
+    public static double getAverageWaitTicks() {
+        return requestsRun > 0 ? (double) totalWaitTicks / requestsRun : 0.0;
+    }
+
+    public static long getMaxWaitTicks() {
+        return maxWaitTicks;
+    }
+
+    private static void submit(Mob mob, @Nullable Entity target, double x, double y, double z,
+                               double speed, Priority priority, @Nullable Consumer<Path> onPath) {
+        if (!(mob.level() instanceof ServerLevel serverLevel)) {
+            // Client-side goals never pathfind for real; keep the direct call
+            if (target != null) {
+                mob.getNavigation().moveTo(target, speed);
+            } else {
+                mob.getNavigation().moveTo(x, y, z, speed);
+            }
+            return;
+        }
+
+        PathRequestQueue queue = QUEUES.computeIfAbsent(serverLevel, k -> new PathRequestQueue());
+        Request request = queue.pending.get(mob);
+        if (request != null) {
+            requestsCoalesced++;
+            if (priority.ordinal() < request.priority.ordinal()) {
+                // Requeue in the more urgent bucket, keeping the original wait time
+                request.queued = false;
+                request = new Request(mob, request.submittedAt);
+                queue.pending.put(mob, request);
+                queue.buckets.get(priority.ordinal()).add(request);
+                request.priority = priority;
+            }
+        } else {
+            request = new Request(mob, serverLevel.getGameTime());
+            request.priority = priority;
+            queue.pending.put(mob, request);
+            queue.buckets.get(priority.ordinal()).add(request);
+        }
+        request.target = target;
+        request.x = x;
+        request.y = y;
+        request.z = z;
+        request.speed = speed;
+        request.onPath = onPath;
+    }
+
+    /**
+     * Runs queued requests, most urgent first, until the node budget is spent.
+     */
+    private void run(ServerLevel level) {
+        long now = level.getGameTime();
+        int budget = ModConfigs.PATH_NODE_BUDGET.get();
+        int used = 0;
+        boolean ranAny = false;
+        for (ArrayDeque<Request> bucket : buckets) {
+            while (!bucket.isEmpty()) {
+                Request request = bucket.peek();
+                if (!request.queued || !request.mob.isAlive() || request.mob.level() != level
+                        || (request.target != null && !request.target.isAlive())) {
+                    bucket.poll();
+                    if (request.queued) {
+                        pending.remove(request.mob);
+                    }
+                    continue;
+                }
+
+                int cost = estimateNodes(request.mob);
+                if (ranAny && used + cost > budget) {
+                    return;
+                }
+                bucket.poll();
+                pending.remove(request.mob);
+                used += cost;
+                ranAny = true;
+
+                long waited = now - request.submittedAt;
+                requestsRun++;
+                totalWaitTicks += waited;
+                maxWaitTicks = Math.max(maxWaitTicks, waited);
+                request.execute();
+            }
+        }
+    }
+
+    /**
+     * Estimates the nodes a search of this mob may visit: PathNavigation caps
+     * searches at follow range x 16 nodes.
+     */
+    private static int estimateNodes(Mob mob) {
+        AttributeInstance followRange = mob.getAttribute(Attributes.FOLLOW_RANGE);
+        return (int) Math.ceil((followRange != null ? followRange.getValue() : 16.0) * 16.0);
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.START || event.side != LogicalSide.SERVER
+                || !(event.level instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        PathRequestQueue queue = QUEUES.get(serverLevel);
+        if (queue != null && !queue.pending.isEmpty()) {
+            queue.run(serverLevel);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            QUEUES.remove(serverLevel);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        QUEUES.clear();
+        requestsRun = 0;
+        requestsCoalesced = 0;
+        totalWaitTicks = 0;
+        maxWaitTicks = 0;
+    }
+
+    /**
+     * One mob's pending path search.
+     */
+    private static class Request {
+
+        private final Mob mob;
+        private final long submittedAt;
+
+        private Priority priority;
+
+        // Entity target, or null to use x/y/z
+        @Nullable
+        private Entity target;
+        private double x;
+        private double y;
+        private double z;
+        private double speed;
+
+        @Nullable
+        private Consumer<Path> onPath;
+
+        // False once superseded or cancelled; the bucket entry is then skipped
+        private boolean queued = true;
+
+        private Request(Mob mob, long submittedAt) {
+            this.mob = mob;
+            this.submittedAt = submittedAt;
+        }
+
+        private void execute() {
+            // Accuracy 1, as moveTo uses, so a target standing in a solid-ish block still counts as reached
+            Path path = target != null
+                    ? mob.getNavigation().createPath(target, 1)
+                    : mob.getNavigation().createPath(x, y, z, 1);
+            if (onPath != null) {
+                onPath.accept(path);
+            }
+            mob.getNavigation().moveTo(path, speed);
+        }
+    }
+}
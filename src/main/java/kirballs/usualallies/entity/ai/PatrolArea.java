@@ -0,0 +1,212 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.BlockPathTypes;
+import net.minecraft.world.level.pathfinder.WalkNodeEvaluator;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.BlockEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Walkable-cell bitmap of a patrol area, shared by every ally patrolling
+ * around the same center with the same radius.
+ *
+ * The area covers a square of columns around the center and
+ * {@link #HALF_HEIGHT} blocks above and below it; one bit per cell records
+ * whether {@link WalkNodeEvaluator} considers it walkable. Each column's
+ * patrol spot is its lowest walkable cell, and the spots are kept in a flat
+ * list so picking a random patrol target is a single array read.
+ *
+ * Block changes inside an area re-probe only the affected cells. Areas no
+ * patroller has asked for in {@link #EXPIRE_TICKS} are dropped.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class PatrolArea {
+
+    // Blocks above and below the center covered by the area
+    private static final int HALF_HEIGHT = 3;
+    private static final int HEIGHT = HALF_HEIGHT * 2 + 1;
+
+    private static final int EXPIRE_TICKS = 6000;
+
+    private static final Map<Level, Map<Key, PatrolArea>> AREAS = new IdentityHashMap<>();
+
+    private final Level level;
+    private final BlockPos center;
+    private final int radius;
+    private final int size;
+
+    // Bit (column * HEIGHT + dy) is set when that cell is walkable
+    private final BitSet walkable;
+
+    // Packed patrol spots (column * HEIGHT + dy), rebuilt lazily after changes
+    private int[] spots = new int[0];
+    private boolean spotsDirty = true;
+
+    private long lastUsed;
+
+    private PatrolArea(Level level, BlockPos center, int radius) {
+        this.level = level;
+        this.center = center.immutable();
+        this.radius = radius;
+        this.size = radius * 2 + 1;
+        this.walkable = new BitSet(size * size * HEIGHT);
+
+        BlockPos.MutableBlockPos probe = new BlockPos.MutableBlockPos();
+        for (int column = 0; column < size * size; column++) {
+            for (int dy = 0; dy < HEIGHT; dy++) {
+                probeCell(column, dy, probe);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared area for a patrol center and radius, building it on first use.
+     *
+     * @param level The level
+     * @param center The patrol center
+     * @param radius The patrol radius, in blocks
+     * @return The shared patrol area
+     */
+    public static PatrolArea get(Level level, BlockPos center, int radius) {
+        Map<Key, PatrolArea> areas = AREAS.computeIfAbsent(level, k -> new HashMap<>());
+        long now = level.getGameTime();
+
+        PatrolArea area = areas.computeIfAbsent(new Key(center.immutable(), radius),
+                k -> new PatrolArea(level, k.center(), k.radius()));
+        area.lastUsed = now;
+        return area;
+    }
+
+    /**
+     * Picks a random patrol spot: the lowest walkable cell of a random column
+     * that has one.
+     *
+     * @param random The random source to use
+     * @return The spot, or null if the area has no walkable cells
+     */
+    @Nullable
+    public BlockPos sample(RandomSource random) {
+        if (spotsDirty) {
+            rebuildSpots();
+        }
+        if (spots.length == 0) {
+            return null;
+        }
+        int spot = spots[random.nextInt(spots.length)];
+        int column = spot / HEIGHT;
+        return new BlockPos(
+                center.getX() + column % size - radius,
+                center.getY() + spot % HEIGHT - HALF_HEIGHT,
+                center.getZ() + column / size - radius);
+    }
+
+    /**
+     * Gets the patrol spot of a column: its lowest walkable cell.
+     *
+     * @param x Column x
+     * @param z Column z
+     * @return The spot, or null if the column is outside the area or has no walkable cell
+     */
+    @Nullable
+    public BlockPos spotAt(int x, int z) {
+        int gx = x - center.getX() + radius;
+        int gz = z - center.getZ() + radius;
+        if (gx < 0 || gz < 0 || gx >= size || gz >= size) {
+            return null;
+        }
+        int base = (gz * size + gx) * HEIGHT;
+        int first = walkable.nextSetBit(base);
+        if (first < 0 || first >= base + HEIGHT) {
+            return null;
+        }
+        return new BlockPos(x, center.getY() + first - base - HALF_HEIGHT, z);
+    }
+
+    private void rebuildSpots() {
+        int[] found = new int[size * size];
+        int count = 0;
+        for (int column = 0; column < size * size; column++) {
+            int base = column * HEIGHT;
+            int first = walkable.nextSetBit(base);
+            if (first >= 0 && first < base + HEIGHT) {
+                found[count++] = first;
+            }
+        }
+        spots = Arrays.copyOf(found, count);
+        spotsDirty = false;
+    }
+
+    private void probeCell(int column, int dy, BlockPos.MutableBlockPos probe) {
+        probe.set(center.getX() + column % size - radius,
+                center.getY() + dy - HALF_HEIGHT,
+                center.getZ() + column / size - radius);
+        walkable.set(column * HEIGHT + dy,
+                WalkNodeEvaluator.getBlockPathTypeStatic(level, probe) == BlockPathTypes.WALKABLE);
+    }
+
+    /**
+     * Re-probes the cells whose walkability depends on a changed block:
+     * the block's own cell and the cell above it (for which it is the floor).
+     */
+    private void onBlockChanged(BlockPos pos) {
+        int gx = pos.getX() - center.getX() + radius;
+        int gz = pos.getZ() - center.getZ() + radius;
+        if (gx < 0 || gz < 0 || gx >= size || gz >= size) {
+            return;
+        }
+        int column = gz * size + gx;
+        BlockPos.MutableBlockPos probe = new BlockPos.MutableBlockPos();
+        for (int y = pos.getY(); y <= pos.getY() + 1; y++) {
+            int dy = y - center.getY() + HALF_HEIGHT;
+            if (dy >= 0 && dy < HEIGHT) {
+                probeCell(column, dy, probe);
+                spotsDirty = true;
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onNeighborNotify(BlockEvent.NeighborNotifyEvent event) {
+        if (!(event.getLevel() instanceof Level level) || level.isClientSide()) {
+            return;
+        }
+        Map<Key, PatrolArea> areas = AREAS.get(level);
+        if (areas != null) {
+            for (PatrolArea area : areas.values()) {
+                area.onBlockChanged(event.getPos());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != LogicalSide.SERVER) {
+            return;
+        }
+        long now = event.level.getGameTime();
+        Map<Key, PatrolArea> areas = AREAS.get(event.level);
+        if (areas != null && now % EXPIRE_TICKS == 0) {
+            areas.values().removeIf(area -> now - area.lastUsed > EXPIRE_TICKS);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level) {
+            AREAS.remove(level);
+        }
+    }
+
+    private record Key(BlockPos center, int radius) {
+    }
+}
@@ -0,0 +1,263 @@
+package kirballs.usualallies.entity.ai;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.BlockEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Fixed ring of waypoints around a patrol center, with the paths between
+ * consecutive waypoints cached for replay. Used by {@link AllyPatrolGoal}
+ * when {@code routePatrol} is enabled.
+ *
+ * Routes are shared per level, center, radius and entity type, since a
+ * path found by one mob type isn't necessarily walkable by another. A
+ * cached segment is dropped when a block inside its bounds changes, and
+ * is recomputed by the next ally that walks it.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class PatrolRoute {
+
+    private static final int EXPIRE_TICKS = 6000;
+
+    // Waypoints sit this fraction of the radius away from the center
+    private static final double WAYPOINT_DISTANCE = 0.75;
+
+    // How close a mob must be to a waypoint for a segment starting there to be replayed or cached
+    private static final double SEGMENT_START_TOLERANCE_SQR = 2.0 * 2.0;
+
+    private static final Map<Level, Map<Key, PatrolRoute>> ROUTES = new IdentityHashMap<>();
+
+    private static long segmentsReplayed;
+    private static long segmentsComputed;
+
+    private final List<BlockPos> waypoints;
+
+    // Segment i runs from waypoint i to waypoint i + 1; null until computed
+    private final Segment[] segments;
+
+    private long lastUsed;
+
+    private PatrolRoute(List<BlockPos> waypoints) {
+        this.waypoints = waypoints;
+        this.segments = new Segment[waypoints.size()];
+    }
+
+    /**
+     * Gets the shared route for a mob's patrol, building its waypoints on first use.
+     *
+     * @param mob The patrolling mob (its type selects the route)
+     * @param center The patrol center
+     * @param radius The patrol radius, in blocks
+     * @return The route, or null if fewer than two waypoints could be placed
+     */
+    @Nullable
+    public static PatrolRoute get(Mob mob, BlockPos center, int radius) {
+        Level level = mob.level();
+        Map<Key, PatrolRoute> routes = ROUTES.computeIfAbsent(level, k -> new HashMap<>());
+        long now = level.getGameTime();
+
+        int count = ModConfigs.ROUTE_WAYPOINTS.get();
+        Key key = new Key(center.immutable(), radius, count, mob.getType());
+        PatrolRoute route = routes.get(key);
+        if (route == null) {
+            route = new PatrolRoute(placeWaypoints(level, center, radius, count));
+            routes.put(key, route);
+        }
+        route.lastUsed = now;
+        return route.size() >= 2 ? route : null;
+    }
+
+    /**
+     * Places waypoints evenly on a circle around the center, each on the
+     * walkable floor of its column (columns without one are skipped).
+     */
+    private static List<BlockPos> placeWaypoints(Level level, BlockPos center, int radius, int count) {
+        PatrolArea area = PatrolArea.get(level, center, radius);
+        List<BlockPos> waypoints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double angle = Math.PI * 2.0 * i / count;
+            int x = center.getX() + (int) Math.round(Math.cos(angle) * radius * WAYPOINT_DISTANCE);
+            int z = center.getZ() + (int) Math.round(Math.sin(angle) * radius * WAYPOINT_DISTANCE);
+            BlockPos spot = area.spotAt(x, z);
+            if (spot != null) {
+                waypoints.add(spot);
+            }
+        }
+        return waypoints;
+    }
+
+    public int size() {
+        return waypoints.size();
+    }
+
+    public BlockPos getWaypoint(int index) {
+        return waypoints.get(index);
+    }
+
+    /**
+     * Gets the index of the waypoint closest to a position.
+     */
+    public int nearestWaypoint(BlockPos pos) {
+        int nearest = 0;
+        for (int i = 1; i < waypoints.size(); i++) {
+            if (waypoints.get(i).distSqr(pos) < waypoints.get(nearest).distSqr(pos)) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Checks whether a mob stands close enough to a waypoint to use the segment starting there.
+     */
+    public boolean isAtWaypoint(Mob mob, int index) {
+        BlockPos waypoint = waypoints.get(index);
+        return mob.distanceToSqr(waypoint.getX() + 0.5, waypoint.getY(), waypoint.getZ() + 0.5)
+                <= SEGMENT_START_TOLERANCE_SQR;
+    }
+
+    /**
+     * Creates a fresh copy of a cached segment for a mob to follow.
+     *
+     * @param index The waypoint the segment starts at
+     * @return A new path, or null if the segment isn't cached
+     */
+    @Nullable
+    public Path replay(int index) {
+        Segment segment = segments[index];
+        if (segment == null) {
+            return null;
+        }
+        segmentsReplayed++;
+        // Navigation may replace nodes in the list, so every replay gets its own copy
+        return new Path(new ArrayList<>(segment.nodes), segment.target, true);
+    }
+
+    /**
+     * Caches a freshly computed segment. Paths that don't reach the next
+     * waypoint are not cached.
+     *
+     * @param index The waypoint the segment starts at
+     * @param path The computed path, or null if none was found
+     */
+    public void store(int index, @Nullable Path path) {
+        if (path == null || !path.canReach() || path.getNodeCount() == 0) {
+            return;
+        }
+        segmentsComputed++;
+        List<Node> nodes = new ArrayList<>(path.getNodeCount());
+        for (int i = 0; i < path.getNodeCount(); i++) {
+            nodes.add(path.getNode(i));
+        }
+        segments[index] = new Segment(List.copyOf(nodes), path.getTarget());
+    }
+
+    public static long getSegmentsReplayed() {
+        return segmentsReplayed;
+    }
+
+    public static long getSegmentsComputed() {
+        return segmentsComputed;
+    }
+
+    private void onBlockChanged(BlockPos pos) {
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] != null && segments[i].contains(pos)) {
+                segments[i] = null;
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onNeighborNotify(BlockEvent.NeighborNotifyEvent event) {
+        if (!(event.getLevel() instanceof Level level) || level.isClientSide()) {
+            return;
+        }
+        Map<Key, PatrolRoute> routes = ROUTES.get(level);
+        if (routes != null) {
+            for (PatrolRoute route : routes.values()) {
+                route.onBlockChanged(event.getPos());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != LogicalSide.SERVER) {
+            return;
+        }
+        long now = event.level.getGameTime();
+        Map<Key, PatrolRoute> routes = ROUTES.get(event.level);
+        if (routes != null && now % EXPIRE_TICKS == 0) {
+            routes.values().removeIf(route -> now - route.lastUsed > EXPIRE_TICKS);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof Level level) {
+            ROUTES.remove(level);
+        }
+    }
+
+    private record Key(BlockPos center, int radius, int waypoints, EntityType<?> type) {
+    }
+
+    /**
+     * A cached path between two waypoints and the block bounds it depends on.
+     */
+    private static class Segment {
+
+        private final List<Node> nodes;
+        private final BlockPos target;
+
+        // Bounds of the nodes, one block wider (floors and walls beside the path)
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+
+        private Segment(List<Node> nodes, BlockPos target) {
+            this.nodes = nodes;
+            this.target = target;
+            int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, z0 = Integer.MAX_VALUE;
+            int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE, z1 = Integer.MIN_VALUE;
+            for (Node node : nodes) {
+                x0 = Math.min(x0, node.x);
+                y0 = Math.min(y0, node.y);
+                z0 = Math.min(z0, node.z);
+                x1 = Math.max(x1, node.x);
+                y1 = Math.max(y1, node.y);
+                z1 = Math.max(z1, node.z);
+            }
+            this.minX = x0 - 1;
+            this.minY = y0 - 1;
+            this.minZ = z0 - 1;
+            this.maxX = x1 + 1;
+            this.maxY = y1 + 2;
+            this.maxZ = z1 + 1;
+        }
+
+        private boolean contains(BlockPos pos) {
+            return pos.getX() >= minX && pos.getX() <= maxX
+                    && pos.getY() >= minY && pos.getY() <= maxY
+                    && pos.getZ() >= minZ && pos.getZ() <= maxZ;
+        }
+    }
+}
@@ -5,7 +5,10 @@ import kirballs.usualallies.ModItems;
 import kirballs.usualallies.ModSounds;
 import kirballs.usualallies.projectile.StarProjectile;
 import kirballs.usualallies.projectile.AirBulletProjectile;
+import kirballs.usualallies.entity.ai.AllyCommandGoals;
+import kirballs.usualallies.entity.ai.AllyDetail;
 import kirballs.usualallies.util.AllyCommand;
+import kirballs.usualallies.util.OwnerLookup;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.syncher.EntityDataAccessor;
@@ -125,6 +128,7 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
     private static final int    INHALE_TIMEOUT   = 100;
     private static final int    FLAP_INTERVAL    = 6;
     private static final int    RESPAWN_DELAY    = 3600;
+    private static final int    DETAIL_UPDATE_INTERVAL = 20; // AI level-of-detail refresh
 
     // Throw mechanic
     private static final float THROW_DAMAGE      = 3.0f;  // 1.5 hearts to target
@@ -165,6 +169,8 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
     private int respawnTimer     = 0;
     private int flapTimer        = 0;
     @Nullable private BlockPos patrolCenter;
+    // Created in registerGoals (server only), which runs before field initialisers – no initialiser here
+    @Nullable private AllyCommandGoals commandGoals;
     private boolean inhaleStarted = false;
     private int inhaleSoundTimer  = 0;
 
@@ -239,12 +245,18 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
         this.goalSelector.addGoal(1, new SitWhenOrderedToGoal(this));
         this.goalSelector.addGoal(2, new KirbInhaleGoal(this));
         this.goalSelector.addGoal(3, new MeleeAttackGoal(this, 1.0, true));
-        this.goalSelector.addGoal(4, new FollowOwnerGoal(this, 1.0, 10.0f, 2.0f, false));
         this.goalSelector.addGoal(5, new BreedGoal(this, 1.0));
-        this.goalSelector.addGoal(6, new WaterAvoidingRandomStrollGoal(this, 1.0));
         this.goalSelector.addGoal(7, new LookAtPlayerGoal(this, Player.class, 8.0f));
         this.goalSelector.addGoal(8, new RandomLookAroundGoal(this));
 
+        // Movement goals are registered per command; setCommand swaps them.
+        // Kirb has no patrol goal of its own, so PATROL keeps it with its owner as before.
+        this.commandGoals = new AllyCommandGoals(this.goalSelector)
+                .add(4, new FollowOwnerGoal(this, 1.0, 10.0f, 2.0f, false), AllyCommand.FOLLOW, AllyCommand.PATROL)
+                .add(6, new WaterAvoidingRandomStrollGoal(this, 1.0),
+                        AllyCommand.FOLLOW, AllyCommand.WANDER, AllyCommand.PATROL);
+        this.commandGoals.apply(getCommand());
+
         // Only retaliate against enemies who hurt the owner – no OwnerHurtTargetGoal.
         this.targetSelector.addGoal(1, new OwnerHurtByTargetGoal(this));
         this.targetSelector.addGoal(2, new HurtByTargetGoal(this));
@@ -265,6 +277,9 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
         if (!level().isClientSide) {
             updateHealthState();
             updateFaceState();
+            if ((tickCount + getId()) % DETAIL_UPDATE_INTERVAL == 0) {
+                AllyDetail.update(this);
+            }
         }
         tickWalkSound();
 
@@ -379,7 +394,7 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
         // Resolve the throwing player from the holding UUID
         Player thrower = null;
         if (holdingPlayerUUID != null && level() instanceof ServerLevel sl) {
-            thrower = sl.getPlayerByUUID(holdingPlayerUUID);
+            thrower = OwnerLookup.get(sl, holdingPlayerUUID);
         }
         final Player finalThrower = thrower;
 
@@ -417,7 +432,7 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
     @Nullable
     private Player findHoldingPlayer() {
         if (holdingPlayerUUID != null && level() instanceof ServerLevel sl) {
-            return sl.getPlayerByUUID(holdingPlayerUUID);
+            return OwnerLookup.get(sl, holdingPlayerUUID);
         }
         if (holdingPlayerId >= 0) {
             Entity e = level().getEntity(holdingPlayerId);
@@ -426,6 +441,14 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
         return null;
     }
 
+    /** Owner lookup through the shared player map instead of a player list scan. */
+    @Nullable
+    @Override
+    public LivingEntity getOwner() {
+        UUID ownerUUID = getOwnerUUID();
+        return ownerUUID != null ? OwnerLookup.get(level(), ownerUUID) : null;
+    }
+
     // -------------------------------------------------------------------------
     // Inhale
     // -------------------------------------------------------------------------
@@ -1017,7 +1040,10 @@ public class KirbEntity extends TamableAnimal implements GeoEntity {
     public void setLives(int v)  { this.entityData.set(DATA_LIVES, v); }
 
     public AllyCommand getCommand()           { return AllyCommand.values()[this.entityData.get(DATA_COMMAND)]; }
-    public void setCommand(AllyCommand cmd)   { this.entityData.set(DATA_COMMAND, cmd.ordinal()); }
+    public void setCommand(AllyCommand cmd) {
+        this.entityData.set(DATA_COMMAND, cmd.ordinal());
+        if (commandGoals != null) commandGoals.apply(cmd);
+    }
 
     public boolean isInhaling()              { return this.entityData.get(DATA_INHALING); }
     public void setInhaling(boolean v) {
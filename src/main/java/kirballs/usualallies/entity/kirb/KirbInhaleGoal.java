@@ -1,5 +1,7 @@
 package kirballs.usualallies.entity.kirb;
 
+import kirballs.usualallies.entity.ai.AllyDetail;
+import kirballs.usualallies.entity.ai.PathRequestQueue;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.goal.Goal;
 
@@ -22,7 +24,12 @@ public class KirbInhaleGoal extends Goal {
     // Time in ticks without capture before repositioning
     private static final int REPOSITION_TIMEOUT = 100; // 5 seconds
     
+    // Ticks between queued path requests while chasing
+    private static final int PATH_REQUEST_INTERVAL = 10;
+    
     private int repositionTimer = 0;
+    
+    private int pathRequestDelay = 0;
 
     public KirbInhaleGoal(KirbEntity kirb) {
         this.kirb = kirb;
@@ -71,6 +78,7 @@ public class KirbInhaleGoal extends Goal {
     @Override
     public void start() {
         repositionTimer = 0;
+        pathRequestDelay = 0;
         kirb.setInhaling(true);
     }
 
@@ -78,6 +86,7 @@ public class KirbInhaleGoal extends Goal {
     public void stop() {
         kirb.setInhaling(false);
         repositionTimer = 0;
+        PathRequestQueue.cancel(kirb);
     }
 
     @Override
@@ -95,10 +104,15 @@ public class KirbInhaleGoal extends Goal {
         // If inhaling but target is too far, move closer
         if (distance > INHALE_START_RANGE) {
             kirb.setInhaling(false);
-            kirb.getNavigation().moveTo(target, 1.2); // Move faster to catch up
+            // Move faster to catch up; re-queue the chase path periodically, not every tick
+            if (--pathRequestDelay <= 0) {
+                PathRequestQueue.request(kirb, target, 1.2, PathRequestQueue.Priority.COMBAT);
+                pathRequestDelay = PATH_REQUEST_INTERVAL * AllyDetail.getMultiplier(kirb);
+            }
             repositionTimer++;
         } else {
             // In range, start/continue inhaling
+            PathRequestQueue.cancel(kirb);
             kirb.getNavigation().stop();
             kirb.setInhaling(true);
             repositionTimer = 0;
@@ -108,7 +122,7 @@ public class KirbInhaleGoal extends Goal {
         if (kirb.isInhaling() && repositionTimer > REPOSITION_TIMEOUT) {
             kirb.setInhaling(false);
             // Move closer to target
-            kirb.getNavigation().moveTo(target, 1.0);
+            PathRequestQueue.request(kirb, target, 1.0, PathRequestQueue.Priority.COMBAT);
             repositionTimer = 0;
         }
     }
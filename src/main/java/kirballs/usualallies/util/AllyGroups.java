@@ -0,0 +1,230 @@
+package kirballs.usualallies.util;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Server-wide ally groups (factions). Players in a shared group treat each
+ * other, and each other's allies, as friendly.
+ *
+ * Every group gets a small integer id, reusing the lowest free one, and each
+ * player's memberships are kept as a {@link BitSet} of those ids. The bitsets
+ * are also indexed by {@link OwnerIds} key, so a friend-or-foe check is a
+ * map lookup plus a word-wise intersection, regardless of group size.
+ *
+ * Saved with the overworld's data so groups are shared by all dimensions.
+ */
+public class AllyGroups extends SavedData {
+
+    // File name under <world>/data/
+    private static final String DATA_NAME = UsualAllies.MOD_ID + "_groups";
+
+    private static final String GROUPS_TAG = "Groups";
+    private static final String NAME_TAG = "Name";
+    private static final String ID_TAG = "Id";
+    private static final String MEMBERS_TAG = "Members";
+
+    // Group name -> group id
+    private final Map<String, Integer> groupIds = new HashMap<>();
+
+    // Group id -> member UUIDs, used for listing and saving
+    private final Map<Integer, Set<UUID>> groupMembers = new HashMap<>();
+
+    // Player UUID -> ids of the groups they belong to
+    private final Map<UUID, BitSet> memberships = new HashMap<>();
+
+    // Owner key -> the same bitsets, for allocation-free friendliness checks
+    private final Int2ObjectOpenHashMap<BitSet> membershipsByKey = new Int2ObjectOpenHashMap<>();
+
+    // Ids of deleted groups, handed out again before new ones
+    private final BitSet usedIds = new BitSet();
+
+    /**
+     * Gets (loading or creating on first use) the server's ally groups.
+     *
+     * @param server The server
+     * @return The shared ally groups
+     */
+    public static AllyGroups get(MinecraftServer server) {
+        return server.overworld().getDataStorage().computeIfAbsent(AllyGroups::load, AllyGroups::new, DATA_NAME);
+    }
+
+    private static AllyGroups load(CompoundTag tag) {
+        AllyGroups groups = new AllyGroups();
+        ListTag groupList = tag.getList(GROUPS_TAG, Tag.TAG_COMPOUND);
+        for (int i = 0; i < groupList.size(); i++) {
+            CompoundTag groupTag = groupList.getCompound(i);
+            String name = groupTag.getString(NAME_TAG);
+            int id = groupTag.getInt(ID_TAG);
+            if (name.isEmpty() || groups.usedIds.get(id)) {
+                continue;
+            }
+            groups.addGroup(name, id);
+            ListTag memberList = groupTag.getList(MEMBERS_TAG, Tag.TAG_INT_ARRAY);
+            for (Tag member : memberList) {
+                groups.addMember(id, NbtUtils.loadUUID(member));
+            }
+        }
+        return groups;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag) {
+        ListTag groupList = new ListTag();
+        for (Map.Entry<String, Integer> group : groupIds.entrySet()) {
+            CompoundTag groupTag = new CompoundTag();
+            groupTag.putString(NAME_TAG, group.getKey());
+            groupTag.putInt(ID_TAG, group.getValue());
+            ListTag memberList = new ListTag();
+            for (UUID member : groupMembers.get(group.getValue())) {
+                memberList.add(NbtUtils.createUUID(member));
+            }
+            groupTag.put(MEMBERS_TAG, memberList);
+            groupList.add(groupTag);
+        }
+        tag.put(GROUPS_TAG, groupList);
+        return tag;
+    }
+
+    /**
+     * Creates a new, empty group.
+     *
+     * @param name The group name
+     * @return True if created, false if the name is taken
+     */
+    public boolean create(String name) {
+        if (groupIds.containsKey(name)) {
+            return false;
+        }
+        addGroup(name, usedIds.nextClearBit(0));
+        setDirty();
+        return true;
+    }
+
+    /**
+     * Deletes a group and drops all its memberships.
+     *
+     * @param name The group name
+     * @return True if the group existed
+     */
+    public boolean delete(String name) {
+        Integer id = groupIds.remove(name);
+        if (id == null) {
+            return false;
+        }
+        for (UUID member : groupMembers.remove(id)) {
+            removeMembership(member, id);
+        }
+        usedIds.clear(id);
+        setDirty();
+        return true;
+    }
+
+    /**
+     * Adds a player to a group.
+     *
+     * @param name The group name
+     * @param player The player's UUID
+     * @return True if added, false if the group doesn't exist or already has the player
+     */
+    public boolean join(String name, UUID player) {
+        Integer id = groupIds.get(name);
+        if (id == null || !addMember(id, player)) {
+            return false;
+        }
+        setDirty();
+        return true;
+    }
+
+    /**
+     * Removes a player from a group.
+     *
+     * @param name The group name
+     * @param player The player's UUID
+     * @return True if the player was a member
+     */
+    public boolean leave(String name, UUID player) {
+        Integer id = groupIds.get(name);
+        if (id == null || !groupMembers.get(id).remove(player)) {
+            return false;
+        }
+        removeMembership(player, id);
+        setDirty();
+        return true;
+    }
+
+    /**
+     * Checks whether two owners share at least one group.
+     *
+     * @param ownerKey1 First owner's {@link OwnerIds} key
+     * @param ownerKey2 Second owner's {@link OwnerIds} key
+     * @return True if both are members of a common group
+     */
+    public boolean shareGroup(int ownerKey1, int ownerKey2) {
+        BitSet groups1 = membershipsByKey.get(ownerKey1);
+        if (groups1 == null) {
+            return false;
+        }
+        BitSet groups2 = membershipsByKey.get(ownerKey2);
+        return groups2 != null && groups1.intersects(groups2);
+    }
+
+    /**
+     * Gets the names of all groups.
+     */
+    public Set<String> getGroupNames() {
+        return Collections.unmodifiableSet(groupIds.keySet());
+    }
+
+    /**
+     * Gets the members of a group.
+     *
+     * @param name The group name
+     * @return Read-only view of the member UUIDs, or null if the group doesn't exist
+     */
+    @Nullable
+    public Set<UUID> getMembers(String name) {
+        Integer id = groupIds.get(name);
+        return id != null ? Collections.unmodifiableSet(groupMembers.get(id)) : null;
+    }
+
+    private void addGroup(String name, int id) {
+        groupIds.put(name, id);
+        groupMembers.put(id, new HashSet<>());
+        usedIds.set(id);
+    }
+
+    private boolean addMember(int id, UUID player) {
+        if (!groupMembers.get(id).add(player)) {
+            return false;
+        }
+        BitSet groups = memberships.computeIfAbsent(player, k -> {
+            BitSet created = new BitSet();
+            membershipsByKey.put(OwnerIds.of(k), created);
+            return created;
+        });
+        groups.set(id);
+        return true;
+    }
+
+    private void removeMembership(UUID player, int id) {
+        BitSet groups = memberships.get(player);
+        if (groups == null) {
+            return;
+        }
+        groups.clear(id);
+        if (groups.isEmpty()) {
+            memberships.remove(player);
+            membershipsByKey.remove(OwnerIds.of(player));
+        }
+    }
+}
@@ -14,11 +14,15 @@ import net.minecraftforge.fml.common.Mod;
 /**
  * Event handler for player interactions with allied mobs.
  * Handles command cycling (follow/stay/wander/patrol) for generic allies
- * that were befriended via Friend Heart.
+ * that were befriended via Friend Heart. Sneaking while cycling passes the
+ * new command on to every loaded ally nearby.
  */
 @Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
 public class AllyInteractionHandler {
 
+    // Radius of the sneak-click group command, in blocks
+    private static final double GROUP_COMMAND_RADIUS = 16.0;
+
     /**
      * Handles right-click interactions with allied mobs.
      * Allows cycling through commands when the player right-clicks with an empty hand.
@@ -60,11 +64,19 @@ public class AllyInteractionHandler {
             applyCommandToMob(mob, newCommand);
         }
         
-        // Send message to player
-        String entityName = target.getDisplayName().getString();
-        player.displayClientMessage(
-                Component.translatable("entity.usualallies.ally.command." + newCommand.name().toLowerCase(), entityName),
-                true); // true = action bar message
+        // Sneaking: give the same command to every ally nearby
+        if (player.isCrouching()) {
+            int count = AllyManager.commandAlliesWithin(player, GROUP_COMMAND_RADIUS, newCommand);
+            player.displayClientMessage(
+                    Component.translatable("entity.usualallies.ally.group_command." + newCommand.name().toLowerCase(), count),
+                    true);
+        } else {
+            // Send message to player
+            String entityName = target.getDisplayName().getString();
+            player.displayClientMessage(
+                    Component.translatable("entity.usualallies.ally.command." + newCommand.name().toLowerCase(), entityName),
+                    true); // true = action bar message
+        }
         
         // Mark the event as handled
         event.setCancellationResult(InteractionResult.SUCCESS);
@@ -72,9 +84,10 @@ public class AllyInteractionHandler {
     }
     
     /**
-     * Applies the command effects to a mob's AI.
+     * Applies the one-off command effects to a mob.
+     * The command goals themselves are swapped by {@link AllyManager#setCommand}.
      */
-    private static void applyCommandToMob(Mob mob, AllyCommand command) {
+    public static void applyCommandToMob(Mob mob, AllyCommand command) {
         switch (command) {
             case STAY:
                 // Stop navigation and make the mob sit/stay
@@ -84,15 +97,12 @@ public class AllyInteractionHandler {
                 // Enable normal following behavior (handled by AllyFollowOwnerGoal)
                 break;
             case WANDER:
-                // Enable wandering behavior (uses vanilla wandering)
+                // Enable wandering behavior (handled by AllyWanderGoal)
                 break;
             case PATROL:
                 // Set patrol center to current position
-                // Store in persistent data for the patrol goal to use
-                mob.getPersistentData().putIntArray("PatrolCenter", 
-                        new int[]{mob.blockPosition().getX(), 
-                                  mob.blockPosition().getY(), 
-                                  mob.blockPosition().getZ()});
+                // Store on the ally state for the patrol goal to use
+                AllyManager.setPatrolCenter(mob, mob.blockPosition());
                 break;
         }
     }
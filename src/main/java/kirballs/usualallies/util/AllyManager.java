@@ -1,42 +1,58 @@
 package kirballs.usualallies.util;
 
+import kirballs.usualallies.entity.ai.AllyCombatCoordinator;
+import kirballs.usualallies.entity.ai.AllyCommandGoals;
+import kirballs.usualallies.entity.ai.AllyFollowOwnerGoal;
+import kirballs.usualallies.entity.ai.AllyFreeze;
+import kirballs.usualallies.entity.ai.AllyPatrolGoal;
+import kirballs.usualallies.entity.ai.AllyStayGoal;
+import kirballs.usualallies.entity.ai.AllyWanderGoal;
+import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.ListTag;
-import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.goal.WrappedGoal;
 import net.minecraft.world.entity.ai.goal.target.NearestAttackableTargetGoal;
 import net.minecraft.world.entity.player.Player;
-import net.minecraftforge.event.entity.living.LivingEvent;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.AttachCapabilitiesEvent;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.LivingAttackEvent;
+import net.minecraftforge.event.entity.living.LivingChangeTargetEvent;
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 /**
  * Manages the ally system for befriended mobs.
  * Tracks which mobs are allied to which players.
+ * Per-mob data is held decoded in the {@link AllyStateHolder} capability.
  * 
  * Features:
  * - Befriended mobs follow the player
- * - Befriended mobs fight for the player
- * - Befriended mobs are not targeted by entities hostile to their species
+ * - Befriended mobs fight for the player (targets assigned per owner by {@link AllyCombatCoordinator})
+ * - Befriended mobs are not targeted by entities hostile to their species (see {@link SpeciesHostility})
  * - Commands: follow, stay, wander, patrol
+ * - Players in a shared group treat each other's allies as friendly
  */
 @Mod.EventBusSubscriber
 public class AllyManager {
 
-    // Map of player UUIDs to their allied mob UUIDs
-    private static final Map<UUID, Set<UUID>> PLAYER_ALLIES = new HashMap<>();
+    // Owner -> ally tracking lives in the per-level AllyRegistry (saved data)
     
-    // Map of ally UUIDs to their current command
-    private static final Map<UUID, AllyCommand> ALLY_COMMANDS = new HashMap<>();
-    
-    // NBT key for ally data on mobs
+    // NBT keys for ally data (capability data, and the legacy persistent-data tag)
     public static final String ALLY_TAG = "UsualAlliesData";
     public static final String OWNER_UUID_TAG = "OwnerUUID";
     public static final String COMMAND_TAG = "Command";
+    public static final String PATROL_CENTER_TAG = "PatrolCenter";
 
     /**
      * Adds a mob as an ally to a player.
@@ -48,23 +64,33 @@ public class AllyManager {
         UUID playerUUID = player.getUUID();
         UUID entityUUID = entity.getUUID();
         
-        // Add to tracking maps
-        PLAYER_ALLIES.computeIfAbsent(playerUUID, k -> new HashSet<>()).add(entityUUID);
-        ALLY_COMMANDS.put(entityUUID, AllyCommand.FOLLOW);
+        // Add to the level's ally registry, dropping any entry under a previous owner
+        if (entity.level() instanceof ServerLevel serverLevel) {
+            AllyRegistry registry = AllyRegistry.get(serverLevel);
+            UUID previousOwner = getOwnerUUID(entity);
+            if (previousOwner != null && !previousOwner.equals(playerUUID)) {
+                registry.remove(previousOwner, entityUUID);
+            }
+            registry.put(playerUUID, entityUUID, AllyCommand.FOLLOW);
+        }
         
-        // Store ally data on the entity for persistence
-        CompoundTag entityData = entity.getPersistentData();
-        CompoundTag allyData = new CompoundTag();
-        allyData.putUUID(OWNER_UUID_TAG, playerUUID);
-        allyData.putInt(COMMAND_TAG, AllyCommand.FOLLOW.ordinal());
-        entityData.put(ALLY_TAG, allyData);
+        // Store ally data on the entity (saved with its capabilities)
+        AllyStateHolder holder = getHolder(entity);
+        if (holder != null) {
+            holder.set(AllyState.create(playerUUID, player.getId()));
+        }
         
         // Modify mob AI if it's a Mob
         if (entity instanceof Mob mob) {
             // Clear current target
             mob.setTarget(null);
             
-            // Add ally AI goals
+            // Start ally maintenance ticks
+            if (mob.level() instanceof ServerLevel serverLevel) {
+                AllyTickService.track(serverLevel, mob, playerUUID);
+            }
+            
+            // Add ally AI goals (reused if this mob already has them)
             addAllyAIGoals(mob);
         }
     }
@@ -72,18 +98,122 @@ public class AllyManager {
     /**
      * Adds ally-specific AI goals to a befriended mob.
      * These goals handle follow, stay, patrol, and wander behaviors.
+     * Goals are created at most once per mob instance, and only those for
+     * the ally's current command are registered; {@link #setCommand} swaps
+     * them when the command changes.
      * 
      * @param mob The mob to add goals to
      */
     private static void addAllyAIGoals(Mob mob) {
-        // Add stay goal with high priority (blocks other goals when active)
-        mob.goalSelector.addGoal(1, new kirballs.usualallies.entity.ai.AllyStayGoal(mob));
-        
-        // Add follow owner goal
-        mob.goalSelector.addGoal(2, new kirballs.usualallies.entity.ai.AllyFollowOwnerGoal(mob, 1.0, 10.0, 2.0));
+        AllyStateHolder holder = getHolder(mob);
+        AllyState state = holder != null ? holder.get() : null;
+        if (state == null) {
+            return;
+        }
         
-        // Add patrol goal
-        mob.goalSelector.addGoal(3, new kirballs.usualallies.entity.ai.AllyPatrolGoal(mob, 0.8, 8.0));
+        AllyCommandGoals goals = holder.getGoals();
+        if (goals == null) {
+            goals = new AllyCommandGoals(mob.goalSelector)
+                    // Stay goal with high priority (blocks other goals when active)
+                    .add(1, new AllyStayGoal(mob), AllyCommand.STAY)
+                    .add(2, new AllyFollowOwnerGoal(mob, 1.0, 10.0, 2.0), AllyCommand.FOLLOW)
+                    .add(3, new AllyPatrolGoal(mob, 0.8, 8.0), AllyCommand.PATROL)
+                    .add(3, new AllyWanderGoal(mob, 0.8), AllyCommand.WANDER);
+            holder.setGoals(goals);
+            holder.setFreeze(new AllyFreeze(mob));
+        }
+        applyCommandGoals(mob, holder, state.command());
+        AllyPushTeams.update(mob, state.ownerUUID());
+    }
+
+    /**
+     * Takes the mob's own nearest-target scans out of its target selector
+     * while {@link AllyCombatCoordinator} picks its targets, and puts them back
+     * otherwise. The coordinator only covers FOLLOW allies within reach of an
+     * owner in the same level, so allies on other commands, left behind or
+     * with their owner offline keep scanning for themselves.
+     * Called from the periodic ally maintenance; frozen allies are skipped,
+     * since their target goals are held by {@link AllyFreeze}.
+     * 
+     * @param mob The ally
+     */
+    public static void updateTargetScans(Mob mob) {
+        AllyStateHolder holder = getHolder(mob);
+        AllyState state = holder != null ? holder.get() : null;
+        if (state == null || (holder.getFreeze() != null && holder.getFreeze().isFrozen())) {
+            return;
+        }
+        updateTargetScans(mob, holder, state.command());
+    }
+
+    private static void updateTargetScans(Mob mob, AllyStateHolder holder, @Nullable AllyCommand command) {
+        Player owner = command == AllyCommand.FOLLOW ? getOwner(mob) : null;
+        if (owner != null && owner.isAlive() && !owner.isSpectator()
+                && AllyCombatCoordinator.isInReach(mob, owner)) {
+            suppressTargetScans(mob, holder);
+        } else {
+            restoreTargetScans(mob, holder);
+        }
+    }
+
+    /**
+     * Takes the mob's own nearest-target scans out of its target selector.
+     * Safe to call again: scans already taken out are no longer in the selector.
+     */
+    private static void suppressTargetScans(Mob mob, AllyStateHolder holder) {
+        for (WrappedGoal wrapped : new ArrayList<>(mob.targetSelector.getAvailableGoals())) {
+            if (wrapped.getGoal() instanceof NearestAttackableTargetGoal<?>) {
+                holder.getSuppressedTargetGoals().add(wrapped);
+                mob.targetSelector.removeGoal(wrapped.getGoal());
+            }
+        }
+    }
+
+    /**
+     * Puts back the target scans taken out by {@link #suppressTargetScans}.
+     */
+    private static void restoreTargetScans(Mob mob, AllyStateHolder holder) {
+        for (WrappedGoal wrapped : holder.getSuppressedTargetGoals()) {
+            mob.targetSelector.addGoal(wrapped.getPriority(), wrapped.getGoal());
+        }
+        holder.getSuppressedTargetGoals().clear();
+    }
+
+    /**
+     * Registers the goals for a command and freezes or wakes the AI to match.
+     * STAY allies are frozen; any other command (or none) wakes them first,
+     * so the goal swap and target scan update see the full selectors.
+     */
+    private static void applyCommandGoals(LivingEntity entity, AllyStateHolder holder, @Nullable AllyCommand command) {
+        AllyFreeze freeze = holder.getFreeze();
+        if (freeze != null && command != AllyCommand.STAY) {
+            freeze.wake();
+        }
+        if (holder.getGoals() != null) {
+            holder.getGoals().apply(command);
+        }
+        if (entity instanceof Mob mob) {
+            updateTargetScans(mob, holder, command);
+        }
+        if (freeze != null && command == AllyCommand.STAY) {
+            freeze.freeze();
+        }
+    }
+
+    /**
+     * Freezes a STAY ally again after it was woken, once it has nothing to fight.
+     * Called from the periodic ally maintenance.
+     * 
+     * @param mob The ally
+     */
+    public static void refreezeIfIdle(Mob mob) {
+        AllyStateHolder holder = getHolder(mob);
+        AllyState state = holder != null ? holder.get() : null;
+        AllyFreeze freeze = holder != null ? holder.getFreeze() : null;
+        if (state != null && state.command() == AllyCommand.STAY && freeze != null
+                && mob.getTarget() == null && freeze.canRefreeze()) {
+            freeze.freeze();
+        }
     }
 
     /**
@@ -94,22 +224,55 @@ public class AllyManager {
     public static void removeAlly(LivingEntity entity) {
         UUID entityUUID = entity.getUUID();
         
-        // Find and remove from player's ally list
+        // Find and remove from the owner's ally list
         UUID ownerUUID = getOwnerUUID(entity);
-        if (ownerUUID != null) {
-            Set<UUID> allies = PLAYER_ALLIES.get(ownerUUID);
-            if (allies != null) {
-                allies.remove(entityUUID);
-            }
+        if (ownerUUID != null && entity.level() instanceof ServerLevel serverLevel) {
+            AllyRegistry.get(serverLevel).remove(ownerUUID, entityUUID);
         }
         
-        // Remove from command map
-        ALLY_COMMANDS.remove(entityUUID);
+        // Stop ally maintenance ticks
+        if (entity instanceof Mob mob && entity.level() instanceof ServerLevel serverLevel) {
+            AllyTickService.untrack(serverLevel, mob);
+            AllyPushTeams.leave(mob);
+        }
         
-        // Remove ally data from entity
+        // Remove ally data and command goals from entity
+        AllyStateHolder holder = getHolder(entity);
+        if (holder != null) {
+            holder.set(null);
+            // No command: also puts back the target scans
+            applyCommandGoals(entity, holder, null);
+            if (holder.getDetail() != null) {
+                holder.getDetail().reset();
+                holder.setDetail(null);
+            }
+        }
         entity.getPersistentData().remove(ALLY_TAG);
     }
 
+    /**
+     * Gets the ally capability of an entity.
+     * 
+     * @param entity The entity
+     * @return The holder, or null for players and entities without it
+     */
+    @Nullable
+    public static AllyStateHolder getHolder(LivingEntity entity) {
+        return entity.getCapability(AllyStateHolder.CAPABILITY).orElse(null);
+    }
+
+    /**
+     * Gets the decoded ally state of an entity.
+     * 
+     * @param entity The entity
+     * @return The ally state, or null if the entity is not an ally
+     */
+    @Nullable
+    public static AllyState getState(LivingEntity entity) {
+        AllyStateHolder holder = getHolder(entity);
+        return holder != null ? holder.get() : null;
+    }
+
     /**
      * Checks if an entity is an ally of any player.
      * 
@@ -117,7 +280,7 @@ public class AllyManager {
      * @return True if the entity is someone's ally
      */
     public static boolean isAlly(LivingEntity entity) {
-        return entity.getPersistentData().contains(ALLY_TAG);
+        return getState(entity) != null;
     }
 
     /**
@@ -139,14 +302,37 @@ public class AllyManager {
      * @return The owner's UUID, or null if not an ally
      */
     public static UUID getOwnerUUID(LivingEntity entity) {
-        CompoundTag entityData = entity.getPersistentData();
-        if (entityData.contains(ALLY_TAG)) {
-            CompoundTag allyData = entityData.getCompound(ALLY_TAG);
-            if (allyData.hasUUID(OWNER_UUID_TAG)) {
-                return allyData.getUUID(OWNER_UUID_TAG);
+        AllyState state = getState(entity);
+        return state != null ? state.ownerUUID() : null;
+    }
+
+    /**
+     * Gets the owner of an allied mob if they are in the same level.
+     * The owner's entity id is cached on the ally state, so repeated calls
+     * skip the UUID lookup.
+     * 
+     * @param entity The ally
+     * @return The owning player, or null if not an ally or the owner isn't here
+     */
+    @Nullable
+    public static Player getOwner(LivingEntity entity) {
+        AllyStateHolder holder = getHolder(entity);
+        AllyState state = holder != null ? holder.get() : null;
+        if (state == null) {
+            return null;
+        }
+        
+        // Fast path: cached entity id
+        if (state.ownerEntityId() >= 0) {
+            Entity cached = entity.level().getEntity(state.ownerEntityId());
+            if (cached instanceof Player player && player.getUUID().equals(state.ownerUUID())) {
+                return player;
             }
         }
-        return null;
+        
+        Player player = OwnerLookup.get(entity.level(), state.ownerUUID());
+        holder.set(state.withOwnerEntityId(player != null ? player.getId() : -1));
+        return player;
     }
 
     /**
@@ -156,24 +342,8 @@ public class AllyManager {
      * @return The current command, or FOLLOW if not found
      */
     public static AllyCommand getCommand(LivingEntity entity) {
-        UUID entityUUID = entity.getUUID();
-        
-        // Check memory first
-        if (ALLY_COMMANDS.containsKey(entityUUID)) {
-            return ALLY_COMMANDS.get(entityUUID);
-        }
-        
-        // Check persistent data
-        CompoundTag entityData = entity.getPersistentData();
-        if (entityData.contains(ALLY_TAG)) {
-            CompoundTag allyData = entityData.getCompound(ALLY_TAG);
-            int commandOrdinal = allyData.getInt(COMMAND_TAG);
-            AllyCommand command = AllyCommand.values()[commandOrdinal];
-            ALLY_COMMANDS.put(entityUUID, command);
-            return command;
-        }
-        
-        return AllyCommand.FOLLOW;
+        AllyState state = getState(entity);
+        return state != null ? state.command() : AllyCommand.FOLLOW;
     }
 
     /**
@@ -183,14 +353,45 @@ public class AllyManager {
      * @param command The new command
      */
     public static void setCommand(LivingEntity entity, AllyCommand command) {
-        UUID entityUUID = entity.getUUID();
-        ALLY_COMMANDS.put(entityUUID, command);
+        AllyStateHolder holder = getHolder(entity);
+        AllyState state = holder != null ? holder.get() : null;
+        if (state == null) {
+            return;
+        }
+        holder.set(state.withCommand(command));
         
-        // Update persistent data
-        CompoundTag entityData = entity.getPersistentData();
-        if (entityData.contains(ALLY_TAG)) {
-            CompoundTag allyData = entityData.getCompound(ALLY_TAG);
-            allyData.putInt(COMMAND_TAG, command.ordinal());
+        // Swap in the goals for the new command (freezing STAY allies)
+        applyCommandGoals(entity, holder, command);
+        
+        // Keep the level's registry in sync
+        if (entity.level() instanceof ServerLevel serverLevel) {
+            AllyRegistry.get(serverLevel).setCommand(state.ownerUUID(), entity.getUUID(), command);
+        }
+    }
+
+    /**
+     * Gets the patrol center of an ally.
+     * 
+     * @param entity The ally
+     * @return The patrol center, or null if none was set
+     */
+    @Nullable
+    public static BlockPos getPatrolCenter(LivingEntity entity) {
+        AllyState state = getState(entity);
+        return state != null ? state.patrolCenter() : null;
+    }
+
+    /**
+     * Sets the patrol center of an ally.
+     * 
+     * @param entity The ally
+     * @param center The new patrol center
+     */
+    public static void setPatrolCenter(LivingEntity entity, BlockPos center) {
+        AllyStateHolder holder = getHolder(entity);
+        AllyState state = holder != null ? holder.get() : null;
+        if (state != null) {
+            holder.set(state.withPatrolCenter(center.immutable()));
         }
     }
 
@@ -208,49 +409,263 @@ public class AllyManager {
     }
 
     /**
-     * Gets all allies of a player.
+     * Gets all allies of a player in the player's current level,
+     * including allies whose chunks are not loaded.
      * 
      * @param player The player
      * @return Set of ally UUIDs
      */
     public static Set<UUID> getAllies(Player player) {
-        return PLAYER_ALLIES.getOrDefault(player.getUUID(), Collections.emptySet());
+        if (player.level() instanceof ServerLevel serverLevel) {
+            return AllyRegistry.get(serverLevel).getAllies(player.getUUID());
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Gets the loaded allies of a player in the player's current level.
+     * Backed by a live index, so this doesn't search the level.
+     * 
+     * @param player The player
+     * @return Read-only list of loaded allied mobs
+     */
+    public static List<Mob> getLoadedAllies(Player player) {
+        if (player.level() instanceof ServerLevel serverLevel) {
+            return AllyTickService.getLoadedAllies(serverLevel, player.getUUID());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Gets the loaded allies of any owner within a radius of a point.
+     * Backed by a per-section index, so cost depends on the allies nearby
+     * rather than on every entity in the area.
+     * 
+     * @param level The level to search
+     * @param center The center of the search
+     * @param radius The search radius, in blocks
+     * @return A new list of the allies found
+     */
+    public static List<Mob> getAlliesWithin(ServerLevel level, Vec3 center, double radius) {
+        return AllyTickService.getAlliesWithin(level, center, radius, OwnerIds.NONE);
+    }
+
+    /**
+     * Gets a player's loaded allies within a radius of them.
+     * 
+     * @param player The owner
+     * @param radius The search radius, in blocks
+     * @return A new list of the allies found
+     */
+    public static List<Mob> getAlliesWithin(Player player, double radius) {
+        if (player.level() instanceof ServerLevel serverLevel) {
+            return AllyTickService.getAlliesWithin(serverLevel, player.position(), radius,
+                    OwnerIds.of(player.getUUID()));
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Issues a command to every loaded ally of a player.
+     * 
+     * @param player The owner
+     * @param command The command to issue
+     * @return The number of allies commanded
+     */
+    public static int commandAllAllies(Player player, AllyCommand command) {
+        List<Mob> allies = getLoadedAllies(player);
+        for (Mob ally : allies) {
+            setCommand(ally, command);
+            AllyInteractionHandler.applyCommandToMob(ally, command);
+        }
+        return allies.size();
+    }
+
+    /**
+     * Issues a command to the loaded allies of a player within a radius of them.
+     * Only visits the chunk sections within the radius, not the level's entities.
+     * 
+     * @param player The owner
+     * @param radius Maximum distance from the player, in blocks
+     * @param command The command to issue
+     * @return The number of allies commanded
+     */
+    public static int commandAlliesWithin(Player player, double radius, AllyCommand command) {
+        List<Mob> allies = getAlliesWithin(player, radius);
+        for (Mob ally : allies) {
+            setCommand(ally, command);
+            AllyInteractionHandler.applyCommandToMob(ally, command);
+        }
+        return allies.size();
+    }
+
+    /**
+     * Gets the interned owner key of an entity: a player's own key, or the
+     * key of an ally's owner. Used for allocation-free friendliness checks.
+     * 
+     * @param entity The entity to check
+     * @return The owner key, or {@link OwnerIds#NONE} for unowned mobs
+     */
+    public static int getOwnerKey(LivingEntity entity) {
+        if (entity instanceof Player player) {
+            return OwnerIds.of(player.getUUID());
+        }
+        AllyState state = getState(entity);
+        return state != null ? state.ownerKey() : OwnerIds.NONE;
     }
 
     /**
      * Checks if two entities should be friendly to each other.
-     * (Both are allies of the same player)
+     * (Same owner, one is the other's owner, or their owners share an {@link AllyGroups} group)
      * 
      * @param entity1 First entity
      * @param entity2 Second entity
      * @return True if they should not fight each other
      */
     public static boolean areFriendly(LivingEntity entity1, LivingEntity entity2) {
-        UUID owner1 = getOwnerUUID(entity1);
-        UUID owner2 = getOwnerUUID(entity2);
-        
-        if (owner1 == null || owner2 == null) {
+        int key1 = getOwnerKey(entity1);
+        if (key1 == OwnerIds.NONE) {
             return false;
         }
+        int key2 = getOwnerKey(entity2);
+        if (key1 == key2) {
+            return true;
+        }
+        MinecraftServer server = entity1.getServer();
+        return key2 != OwnerIds.NONE && server != null && AllyGroups.get(server).shareGroup(key1, key2);
+    }
+
+    /**
+     * Vetoes target changes between friendly entities, so allies never pick
+     * a fight with their owner or with each other.
+     */
+    @SubscribeEvent
+    public static void onChangeTarget(LivingChangeTargetEvent event) {
+        LivingEntity target = event.getNewTarget();
+        if (target != null && !event.getEntity().level().isClientSide()
+                && areFriendly(event.getEntity(), target)) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * Cancels damage dealt by an ally (directly or through its projectiles)
+     * to anything friendly to it. Players can still hit their own allies.
+     */
+    @SubscribeEvent
+    public static void onLivingAttack(LivingAttackEvent event) {
+        if (event.getSource().getEntity() instanceof LivingEntity attacker
+                && !(attacker instanceof Player)
+                && !event.getEntity().level().isClientSide()
+                && areFriendly(attacker, event.getEntity())) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * Attaches the ally state capability to every non-player living entity.
+     */
+    @SubscribeEvent
+    public static void onAttachCapabilities(AttachCapabilitiesEvent<Entity> event) {
+        if (event.getObject() instanceof LivingEntity && !(event.getObject() instanceof Player)) {
+            event.addCapability(AllyStateHolder.ID, new AllyStateHolder.Provider());
+        }
+    }
+
+    /**
+     * Sets up allies as they are loaded or spawned into a level: installs
+     * their ally goals from the cached state, starts ticking them, and makes
+     * sure the level's registry knows about them (allies arriving from
+     * another dimension are only registered here).
+     */
+    @SubscribeEvent
+    public static void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel serverLevel) || !(event.getEntity() instanceof LivingEntity entity)) {
+            return;
+        }
+        
+        migrateLegacyData(serverLevel, entity);
         
-        return owner1.equals(owner2);
+        AllyState state = getState(entity);
+        if (state == null) {
+            return;
+        }
+        AllyRegistry.get(serverLevel).put(state.ownerUUID(), entity.getUUID(), state.command());
+        if (entity instanceof Mob mob) {
+            addAllyAIGoals(mob);
+            AllyTickService.track(serverLevel, mob, state.ownerUUID());
+        }
     }
 
     /**
-     * Event handler to prevent allies from being targeted by their former enemies.
+     * Stops ticking allies when they leave a level. Allies that were killed,
+     * discarded (e.g. spat out by Kirb) or moved to another dimension are
+     * dropped from the level's registry; unloaded allies keep their entry
+     * and remember the chunk they were saved in.
      */
     @SubscribeEvent
-    public static void onLivingTick(LivingEvent.LivingTickEvent event) {
-        LivingEntity entity = event.getEntity();
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (!(event.getLevel() instanceof ServerLevel serverLevel) || !(event.getEntity() instanceof Mob mob)) {
+            return;
+        }
+        
+        // The tracked owner is used because capabilities may already be invalidated here
+        UUID ownerUUID = AllyTickService.untrack(serverLevel, mob);
+        if (ownerUUID == null) {
+            return;
+        }
         
-        if (entity.level().isClientSide) {
+        AllyRegistry registry = AllyRegistry.get(serverLevel);
+        Entity.RemovalReason reason = mob.getRemovalReason();
+        if (reason == Entity.RemovalReason.UNLOADED_TO_CHUNK || reason == Entity.RemovalReason.UNLOADED_WITH_PLAYER) {
+            registry.setLastChunk(ownerUUID, mob.getUUID(), mob.chunkPosition().toLong());
+        } else if (reason != null) {
+            registry.remove(ownerUUID, mob.getUUID());
+        }
+    }
+
+    /**
+     * Drops dying allies from the registry right away rather than waiting
+     * for the body to be removed.
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onLivingDeath(LivingDeathEvent event) {
+        LivingEntity entity = event.getEntity();
+        if (!(entity.level() instanceof ServerLevel serverLevel)) {
             return;
         }
         
-        // If this is an allied mob, check if anything is incorrectly targeting it
-        if (isAlly(entity) && entity instanceof Mob allyMob) {
-            // Nothing specific to do here right now
-            // More complex ally behavior can be added
+        UUID ownerUUID = getOwnerUUID(entity);
+        if (ownerUUID != null) {
+            AllyRegistry.get(serverLevel).remove(ownerUUID, entity.getUUID());
+            if (entity instanceof Mob mob) {
+                AllyTickService.untrack(serverLevel, mob);
+            }
+        }
+    }
+
+    /**
+     * Migrates allies saved before the capability existed, whose data still
+     * sits in the entity's persistent data.
+     */
+    private static void migrateLegacyData(ServerLevel level, LivingEntity entity) {
+        CompoundTag entityData = entity.getPersistentData();
+        if (!entityData.contains(ALLY_TAG)) {
+            return;
+        }
+        AllyStateHolder holder = getHolder(entity);
+        if (holder != null && holder.get() == null) {
+            CompoundTag legacy = entityData.getCompound(ALLY_TAG).copy();
+            if (entityData.contains(PATROL_CENTER_TAG)) {
+                legacy.putIntArray(PATROL_CENTER_TAG, entityData.getIntArray(PATROL_CENTER_TAG));
+            }
+            AllyState state = AllyState.load(legacy);
+            holder.set(state);
+            if (state != null) {
+                AllyRegistry.get(level).put(state.ownerUUID(), entity.getUUID(), state.command());
+            }
         }
+        entityData.remove(ALLY_TAG);
+        entityData.remove(PATROL_CENTER_TAG);
     }
 }
@@ -0,0 +1,146 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.scores.PlayerTeam;
+import net.minecraft.world.scores.Scoreboard;
+import net.minecraft.world.scores.Team;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Puts allies of the same owner on a shared scoreboard team whose collision
+ * rule is {@link Team.CollisionRule#PUSH_OTHER_TEAMS}, so vanilla entity
+ * pushing skips pairs of them. Enabled with {@code skipAllyPush}.
+ *
+ * Mobs already on a team that isn't one of ours (e.g. from a data pack)
+ * are left alone. With the option off, allies are taken back out of our
+ * teams as they are set up again.
+ *
+ * Since the scoreboard is saved with the world, allies only stay on a team
+ * while loaded: they leave it when they die or leave their level and join
+ * again when loaded. Teams left empty are removed, and teams still around
+ * from an earlier run are cleared when the server starts.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class AllyPushTeams {
+
+    private static final String TEAM_PREFIX = "usualallies_";
+
+    /**
+     * Moves an ally onto or off its owner's push team to match the config.
+     *
+     * @param mob The ally
+     * @param owner The owner's UUID
+     */
+    public static void update(Mob mob, UUID owner) {
+        if (ModConfigs.SKIP_ALLY_PUSH.get()) {
+            join(mob, owner);
+        } else {
+            leave(mob);
+        }
+    }
+
+    /**
+     * Takes a mob off its push team, if it is on one.
+     *
+     * @param mob The mob
+     */
+    public static void leave(Mob mob) {
+        Level level = mob.level();
+        if (level.isClientSide()) {
+            return;
+        }
+        Scoreboard scoreboard = level.getScoreboard();
+        PlayerTeam team = scoreboard.getPlayersTeam(mob.getScoreboardName());
+        if (team != null && team.getName().startsWith(TEAM_PREFIX)) {
+            scoreboard.removePlayerFromTeam(mob.getScoreboardName(), team);
+            if (team.getPlayers().isEmpty()) {
+                scoreboard.removePlayerTeam(team);
+            }
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onLivingDeath(LivingDeathEvent event) {
+        if (!event.isCanceled() && event.getEntity() instanceof Mob mob) {
+            leave(mob);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (event.getEntity() instanceof Mob mob) {
+            leave(mob);
+        }
+    }
+
+    /**
+     * Clears members left on our teams in the saved scoreboard, e.g. after a
+     * crash, keeping allies already loaded with the spawn chunks.
+     */
+    @SubscribeEvent
+    public static void onServerStarted(ServerStartedEvent event) {
+        MinecraftServer server = event.getServer();
+        Scoreboard scoreboard = server.getScoreboard();
+        for (PlayerTeam team : new ArrayList<>(scoreboard.getPlayerTeams())) {
+            if (!team.getName().startsWith(TEAM_PREFIX)) {
+                continue;
+            }
+            for (String member : new ArrayList<>(team.getPlayers())) {
+                if (!isLoaded(server, member)) {
+                    scoreboard.removePlayerFromTeam(member, team);
+                }
+            }
+            if (team.getPlayers().isEmpty()) {
+                scoreboard.removePlayerTeam(team);
+            }
+        }
+    }
+
+    private static boolean isLoaded(MinecraftServer server, String scoreboardName) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(scoreboardName);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (ServerLevel level : server.getAllLevels()) {
+            if (level.getEntity(uuid) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void join(Mob mob, UUID owner) {
+        Level level = mob.level();
+        if (level.isClientSide()) {
+            return;
+        }
+        Scoreboard scoreboard = level.getScoreboard();
+        PlayerTeam current = scoreboard.getPlayersTeam(mob.getScoreboardName());
+        String name = TEAM_PREFIX + owner;
+        if (current != null && (current.getName().equals(name) || !current.getName().startsWith(TEAM_PREFIX))) {
+            return;
+        }
+
+        PlayerTeam team = scoreboard.getPlayerTeam(name);
+        if (team == null) {
+            team = scoreboard.addPlayerTeam(name);
+            team.setCollisionRule(Team.CollisionRule.PUSH_OTHER_TEAMS);
+        }
+        scoreboard.addPlayerToTeam(mob.getScoreboardName(), team);
+    }
+}
@@ -0,0 +1,355 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Per-level registry of befriended mobs, saved alongside the level data.
+ * Replaces the old static maps in {@link AllyManager} so that ally ownership
+ * survives restarts and is kept separate for every dimension.
+ *
+ * Entries are grouped by owner. Each owner's ally list is only decoded from
+ * NBT the first time it is accessed, and only owners that changed since the
+ * last save are re-serialized; untouched owners reuse their cached tag.
+ *
+ * Each ally also remembers the chunk it was last unloaded in, which lets
+ * {@link #compact} spot entries whose entity no longer exists.
+ */
+public class AllyRegistry extends SavedData {
+
+    // File name under <world>/<dimension>/data/
+    private static final String DATA_NAME = UsualAllies.MOD_ID + "_allies";
+
+    private static final String OWNERS_TAG = "Owners";
+    private static final String OWNER_TAG = "Owner";
+    private static final String ALLIES_TAG = "Allies";
+    private static final String ALLY_TAG = "Ally";
+    private static final String COMMAND_TAG = "Command";
+    private static final String CHUNK_TAG = "Chunk";
+
+    // Marks an ally whose last chunk is unknown (it has never been unloaded)
+    private static final long UNKNOWN_CHUNK = Long.MAX_VALUE;
+
+    // Owner UUID -> that owner's allies in this level
+    private final Map<UUID, OwnerEntry> owners = new HashMap<>();
+
+    // Owners still to be visited by the running compaction pass, null when idle
+    @Nullable
+    private Deque<UUID> compactionQueue;
+
+    /**
+     * Gets (loading or creating on first use) the registry for a level.
+     *
+     * @param level The server level
+     * @return The level's ally registry
+     */
+    public static AllyRegistry get(ServerLevel level) {
+        return level.getDataStorage().computeIfAbsent(AllyRegistry::load, AllyRegistry::new, DATA_NAME);
+    }
+
+    /**
+     * Reads the saved registry. Owner entries keep their raw tag and are
+     * decoded lazily by {@link OwnerEntry#allies()}.
+     */
+    private static AllyRegistry load(CompoundTag tag) {
+        AllyRegistry registry = new AllyRegistry();
+        ListTag ownerList = tag.getList(OWNERS_TAG, Tag.TAG_COMPOUND);
+        for (int i = 0; i < ownerList.size(); i++) {
+            CompoundTag ownerTag = ownerList.getCompound(i);
+            if (ownerTag.hasUUID(OWNER_TAG)) {
+                registry.owners.put(ownerTag.getUUID(OWNER_TAG), new OwnerEntry(ownerTag));
+            }
+        }
+        return registry;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag) {
+        ListTag ownerList = new ListTag();
+        for (Map.Entry<UUID, OwnerEntry> entry : owners.entrySet()) {
+            ownerList.add(entry.getValue().serialize(entry.getKey()));
+        }
+        tag.put(OWNERS_TAG, ownerList);
+        return tag;
+    }
+
+    /**
+     * Registers an ally under an owner, or updates its command if already present.
+     *
+     * @param owner The owner's UUID
+     * @param ally The ally's UUID
+     * @param command The ally's command
+     */
+    public void put(UUID owner, UUID ally, AllyCommand command) {
+        OwnerEntry entry = owners.computeIfAbsent(owner, k -> new OwnerEntry(null));
+        AllyEntry allyEntry = entry.allies().get(ally);
+        if (allyEntry == null) {
+            entry.allies().put(ally, new AllyEntry(command, UNKNOWN_CHUNK));
+        } else if (allyEntry.command != command) {
+            allyEntry.command = command;
+        } else {
+            return;
+        }
+        entry.markDirty();
+        setDirty();
+    }
+
+    /**
+     * Removes an ally from its owner's list.
+     * Owners left without allies are dropped from the registry.
+     *
+     * @param owner The owner's UUID
+     * @param ally The ally's UUID
+     * @return True if the ally was registered
+     */
+    public boolean remove(UUID owner, UUID ally) {
+        OwnerEntry entry = owners.get(owner);
+        if (entry == null || entry.allies().remove(ally) == null) {
+            return false;
+        }
+        if (entry.allies().isEmpty()) {
+            owners.remove(owner);
+        } else {
+            entry.markDirty();
+        }
+        setDirty();
+        return true;
+    }
+
+    /**
+     * Updates the stored command of a registered ally.
+     * Does nothing if the ally isn't registered under this owner.
+     *
+     * @param owner The owner's UUID
+     * @param ally The ally's UUID
+     * @param command The new command
+     */
+    public void setCommand(UUID owner, UUID ally, AllyCommand command) {
+        OwnerEntry entry = owners.get(owner);
+        if (entry != null && entry.allies().containsKey(ally)) {
+            put(owner, ally, command);
+        }
+    }
+
+    /**
+     * Records the chunk a registered ally was unloaded in.
+     *
+     * @param owner The owner's UUID
+     * @param ally The ally's UUID
+     * @param chunkPos The chunk position, packed as by {@link ChunkPos#toLong()}
+     */
+    public void setLastChunk(UUID owner, UUID ally, long chunkPos) {
+        OwnerEntry entry = owners.get(owner);
+        AllyEntry allyEntry = entry != null ? entry.allies().get(ally) : null;
+        if (allyEntry != null && allyEntry.chunk != chunkPos) {
+            allyEntry.chunk = chunkPos;
+            entry.markDirty();
+            setDirty();
+        }
+    }
+
+    /**
+     * Gets the stored command of a registered ally.
+     *
+     * @param owner The owner's UUID
+     * @param ally The ally's UUID
+     * @return The command, or null if the ally isn't registered
+     */
+    @Nullable
+    public AllyCommand getCommand(UUID owner, UUID ally) {
+        OwnerEntry entry = owners.get(owner);
+        AllyEntry allyEntry = entry != null ? entry.allies().get(ally) : null;
+        return allyEntry != null ? allyEntry.command : null;
+    }
+
+    /**
+     * Gets the UUIDs of every ally an owner has in this level, loaded or not.
+     *
+     * @param owner The owner's UUID
+     * @return Read-only view of the owner's ally UUIDs
+     */
+    public Set<UUID> getAllies(UUID owner) {
+        OwnerEntry entry = owners.get(owner);
+        return entry != null ? Collections.unmodifiableSet(entry.allies().keySet()) : Collections.emptySet();
+    }
+
+    /**
+     * Gets the number of owners with at least one ally in this level.
+     */
+    public int getOwnerCount() {
+        return owners.size();
+    }
+
+    /**
+     * Gets the number of registered allies in this level, loaded or not.
+     */
+    public int getAllyCount() {
+        int count = 0;
+        for (OwnerEntry entry : owners.values()) {
+            count += entry.size();
+        }
+        return count;
+    }
+
+    /**
+     * Runs one slice of the orphan compaction pass.
+     * A pass visits every owner once; a new pass starts on the next call
+     * after the previous one finished. An ally entry is dropped when its
+     * entity is loaded but no longer allied to that owner, or when the
+     * chunk it was unloaded in is entity-ticking again but it isn't there.
+     *
+     * @param level The level this registry belongs to
+     * @param budget Roughly how many ally entries to check in this slice
+     * @return True if the pass finished in this slice
+     */
+    public boolean compact(ServerLevel level, int budget) {
+        if (compactionQueue == null) {
+            compactionQueue = new ArrayDeque<>(owners.keySet());
+        }
+        
+        int checked = 0;
+        while (checked < budget && !compactionQueue.isEmpty()) {
+            UUID owner = compactionQueue.poll();
+            OwnerEntry entry = owners.get(owner);
+            if (entry == null) {
+                continue;
+            }
+            
+            boolean changed = false;
+            Iterator<Map.Entry<UUID, AllyEntry>> it = entry.allies().entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<UUID, AllyEntry> ally = it.next();
+                checked++;
+                if (isOrphan(level, owner, ally.getKey(), ally.getValue())) {
+                    it.remove();
+                    changed = true;
+                }
+            }
+            
+            if (entry.allies().isEmpty()) {
+                owners.remove(owner);
+                setDirty();
+            } else if (changed) {
+                entry.markDirty();
+                setDirty();
+            }
+        }
+        
+        if (compactionQueue.isEmpty()) {
+            compactionQueue = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a compaction pass is in progress.
+     */
+    public boolean isCompacting() {
+        return compactionQueue != null;
+    }
+
+    private static boolean isOrphan(ServerLevel level, UUID owner, UUID ally, AllyEntry allyEntry) {
+        Entity entity = level.getEntity(ally);
+        if (entity != null) {
+            // Loaded: must still carry matching ally state
+            return !(entity instanceof LivingEntity living) || !owner.equals(AllyManager.getOwnerUUID(living));
+        }
+        // Not loaded: orphaned if the chunk it was saved in is loaded and entity-ticking
+        // (entities in border chunks are loaded but not visible to getEntity)
+        return allyEntry.chunk != UNKNOWN_CHUNK
+                && level.areEntitiesLoaded(allyEntry.chunk)
+                && level.isPositionEntityTicking(new ChunkPos(allyEntry.chunk).getWorldPosition());
+    }
+
+    /**
+     * Saved per-ally data.
+     */
+    private static class AllyEntry {
+
+        private AllyCommand command;
+
+        // Packed chunk position the ally was last unloaded in
+        private long chunk;
+
+        private AllyEntry(AllyCommand command, long chunk) {
+            this.command = command;
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * Per-owner ally list together with its cached serialized form.
+     */
+    private static class OwnerEntry {
+
+        // Last serialized form; reused on save while the entry is clean
+        @Nullable
+        private CompoundTag cachedTag;
+
+        // Decoded on first access, null until then
+        @Nullable
+        private Map<UUID, AllyEntry> allies;
+
+        private OwnerEntry(@Nullable CompoundTag loadedTag) {
+            this.cachedTag = loadedTag;
+            if (loadedTag == null) {
+                this.allies = new HashMap<>();
+            }
+        }
+
+        private Map<UUID, AllyEntry> allies() {
+            if (allies == null) {
+                allies = new HashMap<>();
+                ListTag allyList = cachedTag.getList(ALLIES_TAG, Tag.TAG_COMPOUND);
+                for (int i = 0; i < allyList.size(); i++) {
+                    CompoundTag allyTag = allyList.getCompound(i);
+                    if (allyTag.hasUUID(ALLY_TAG)) {
+                        AllyCommand command = AllyState.commandFromOrdinal(allyTag.getByte(COMMAND_TAG));
+                        long chunk = allyTag.contains(CHUNK_TAG) ? allyTag.getLong(CHUNK_TAG) : UNKNOWN_CHUNK;
+                        allies.put(allyTag.getUUID(ALLY_TAG), new AllyEntry(command, chunk));
+                    }
+                }
+            }
+            return allies;
+        }
+
+        private int size() {
+            return allies != null ? allies.size() : cachedTag.getList(ALLIES_TAG, Tag.TAG_COMPOUND).size();
+        }
+
+        private void markDirty() {
+            cachedTag = null;
+        }
+
+        private CompoundTag serialize(UUID owner) {
+            if (cachedTag == null) {
+                CompoundTag ownerTag = new CompoundTag();
+                ownerTag.putUUID(OWNER_TAG, owner);
+                ListTag allyList = new ListTag();
+                for (Map.Entry<UUID, AllyEntry> ally : allies().entrySet()) {
+                    CompoundTag allyTag = new CompoundTag();
+                    allyTag.putUUID(ALLY_TAG, ally.getKey());
+                    allyTag.putByte(COMMAND_TAG, (byte) ally.getValue().command.ordinal());
+                    if (ally.getValue().chunk != UNKNOWN_CHUNK) {
+                        allyTag.putLong(CHUNK_TAG, ally.getValue().chunk);
+                    }
+                    allyList.add(allyTag);
+                }
+                ownerTag.put(ALLIES_TAG, allyList);
+                cachedTag = ownerTag;
+            }
+            return cachedTag;
+        }
+    }
+}
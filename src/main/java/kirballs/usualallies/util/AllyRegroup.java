@@ -0,0 +1,235 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.entity.ai.OwnerLandingSpots;
+import kirballs.usualallies.entity.ai.PathRequestQueue;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.portal.PortalInfo;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.common.util.ITeleporter;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityTeleportEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Brings an owner's FOLLOW allies along when the owner teleports or
+ * changes dimension, instead of leaving them to notice the distance one
+ * by one in {@code AllyFollowOwnerGoal}.
+ *
+ * Each owner event queues a regroup job holding the owner's loaded
+ * followers in the level they left. Jobs are worked off at the end of
+ * each server tick, at most {@code regroupBudget} allies per tick across
+ * all jobs. Allies land on the owner's shared {@link OwnerLandingSpots};
+ * crossing dimensions goes through {@link Entity#changeDimension} first.
+ * Only allies that are still loaded when their turn comes are moved, so
+ * no chunk is ever loaded for a regroup; allies in unloaded chunks stay
+ * where they are. A newer event for the same owner replaces its job.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class AllyRegroup {
+
+    // Teleports shorter than this are left to normal following
+    private static final double MIN_TELEPORT_DISTANCE = 16.0;
+
+    // Ticks an ally waits for a free landing spot before it is dropped from the job
+    private static final int MAX_LANDING_TRIES = 5;
+
+    // Owner UUID -> pending job, oldest first
+    private static final Map<UUID, Job> JOBS = new LinkedHashMap<>();
+
+    private static long alliesMoved;
+    private static long alliesMovedAcrossDimensions;
+
+    /**
+     * Queues a regroup when an owner teleports far within a dimension
+     * (commands, ender pearls, chorus fruit, ...).
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onEntityTeleport(EntityTeleportEvent event) {
+        if (event.isCanceled() || !(event.getEntity() instanceof ServerPlayer player)
+                || !(player.level() instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        Vec3 target = new Vec3(event.getTargetX(), event.getTargetY(), event.getTargetZ());
+        if (player.position().distanceToSqr(target) >= MIN_TELEPORT_DISTANCE * MIN_TELEPORT_DISTANCE) {
+            queue(player, serverLevel);
+        }
+    }
+
+    /**
+     * Queues a regroup from the level an owner just left.
+     */
+    @SubscribeEvent
+    public static void onChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            ServerLevel from = player.server.getLevel(event.getFrom());
+            if (from != null) {
+                queue(player, from);
+            }
+        }
+    }
+
+    public static int getJobCount() {
+        return JOBS.size();
+    }
+
+    public static long getAlliesMoved() {
+        return alliesMoved;
+    }
+
+    public static long getAlliesMovedAcrossDimensions() {
+        return alliesMovedAcrossDimensions;
+    }
+
+    private static void queue(ServerPlayer owner, ServerLevel from) {
+        ArrayDeque<Mob> followers = new ArrayDeque<>();
+        for (Mob mob : AllyTickService.getLoadedAllies(from, owner.getUUID())) {
+            if (AllyManager.getCommand(mob) == AllyCommand.FOLLOW) {
+                followers.add(mob);
+            }
+        }
+        JOBS.remove(owner.getUUID());
+        if (!followers.isEmpty()) {
+            JOBS.put(owner.getUUID(), new Job(from.dimension(), followers));
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || JOBS.isEmpty()) {
+            return;
+        }
+        MinecraftServer server = event.getServer();
+        int budget = ModConfigs.REGROUP_BUDGET.get();
+        Iterator<Map.Entry<UUID, Job>> jobs = JOBS.entrySet().iterator();
+        while (jobs.hasNext() && budget > 0) {
+            Map.Entry<UUID, Job> entry = jobs.next();
+            ServerPlayer owner = server.getPlayerList().getPlayer(entry.getKey());
+            ServerLevel from = server.getLevel(entry.getValue().from);
+            if (owner == null || from == null) {
+                jobs.remove();
+                continue;
+            }
+            budget = entry.getValue().run(owner, from, budget);
+            if (entry.getValue().followers.isEmpty()) {
+                jobs.remove();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        JOBS.clear();
+        alliesMoved = 0;
+        alliesMovedAcrossDimensions = 0;
+    }
+
+    /**
+     * Places an ally that is already in the owner's level on a free landing spot.
+     *
+     * @return False if no landing spot was free this tick
+     */
+    private static boolean land(ServerPlayer owner, Mob mob) {
+        BlockPos spot = OwnerLandingSpots.claim(owner, mob);
+        if (spot == null) {
+            return false;
+        }
+        mob.moveTo(spot.getX() + 0.5, spot.getY(), spot.getZ() + 0.5, mob.getYRot(), mob.getXRot());
+        PathRequestQueue.cancel(mob);
+        mob.getNavigation().stop();
+        return true;
+    }
+
+    /**
+     * One owner's pending regroup.
+     */
+    private static class Job {
+
+        private final ResourceKey<Level> from;
+        private final ArrayDeque<Mob> followers;
+
+        // Landing attempts made by the ally at the head of the queue
+        private int landingTries;
+
+        private Job(ResourceKey<Level> from, ArrayDeque<Mob> followers) {
+            this.from = from;
+            this.followers = followers;
+        }
+
+        /**
+         * Moves allies until the budget or the job runs out.
+         *
+         * @return The budget left
+         */
+        private int run(ServerPlayer owner, ServerLevel fromLevel, int budget) {
+            while (budget > 0 && !followers.isEmpty()) {
+                Mob mob = followers.peek();
+                // Skip allies that died, unloaded, moved on or stopped following since the job was queued
+                if (!mob.isAlive() || mob.isRemoved() || mob.level() != fromLevel || mob.isPassenger()
+                        || AllyManager.getCommand(mob) != AllyCommand.FOLLOW) {
+                    followers.poll();
+                    landingTries = 0;
+                    continue;
+                }
+                budget--;
+
+                if (fromLevel == owner.level()) {
+                    if (land(owner, mob)) {
+                        alliesMoved++;
+                    } else if (++landingTries < MAX_LANDING_TRIES) {
+                        // Landing spots are handed out per tick; try again next tick
+                        return budget;
+                    }
+                } else {
+                    Entity moved = mob.changeDimension(owner.serverLevel(), new OwnerTeleporter(owner.position()));
+                    if (moved instanceof Mob arrived) {
+                        land(owner, arrived);
+                        alliesMoved++;
+                        alliesMovedAcrossDimensions++;
+                    }
+                }
+                followers.poll();
+                landingTries = 0;
+            }
+            return budget;
+        }
+    }
+
+    /**
+     * Places entities moved to another dimension at the owner's position,
+     * without looking for or building a portal.
+     */
+    private record OwnerTeleporter(Vec3 position) implements ITeleporter {
+
+        @Override
+        public PortalInfo getPortalInfo(Entity entity, ServerLevel destWorld,
+                                        Function<ServerLevel, PortalInfo> defaultPortalInfo) {
+            return new PortalInfo(position, Vec3.ZERO, entity.getYRot(), entity.getXRot());
+        }
+
+        @Override
+        public boolean isVanilla() {
+            return false;
+        }
+
+        @Override
+        public boolean playTeleportSound(ServerPlayer player, ServerLevel sourceWorld, ServerLevel destWorld) {
+            return false;
+        }
+    }
+}
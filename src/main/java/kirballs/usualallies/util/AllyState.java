@@ -0,0 +1,82 @@
+package kirballs.usualallies.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * Decoded ally data for a befriended mob.
+ * Held by {@link AllyStateHolder} and replaced as a whole whenever it changes,
+ * so goals can read it every tick without touching NBT.
+ *
+ * @param ownerUUID The owning player's UUID
+ * @param ownerKey Interned id of the owner from {@link OwnerIds}, for cheap comparisons
+ * @param ownerEntityId The owner's entity id in the current session, or -1 if not resolved yet
+ * @param command The ally's current command
+ * @param patrolCenter Center of the patrol area, or null if none was set
+ */
+public record AllyState(UUID ownerUUID, int ownerKey, int ownerEntityId, AllyCommand command, @Nullable BlockPos patrolCenter) {
+
+    /**
+     * Creates the state for a freshly befriended mob.
+     */
+    public static AllyState create(UUID ownerUUID, int ownerEntityId) {
+        return new AllyState(ownerUUID, OwnerIds.of(ownerUUID), ownerEntityId, AllyCommand.FOLLOW, null);
+    }
+
+    public AllyState withCommand(AllyCommand command) {
+        return command == this.command ? this : new AllyState(ownerUUID, ownerKey, ownerEntityId, command, patrolCenter);
+    }
+
+    public AllyState withOwnerEntityId(int ownerEntityId) {
+        return ownerEntityId == this.ownerEntityId ? this : new AllyState(ownerUUID, ownerKey, ownerEntityId, command, patrolCenter);
+    }
+
+    public AllyState withPatrolCenter(@Nullable BlockPos patrolCenter) {
+        return new AllyState(ownerUUID, ownerKey, ownerEntityId, command, patrolCenter);
+    }
+
+    /**
+     * Writes this state to NBT. The owner key and entity id are session-only and not saved.
+     */
+    public CompoundTag save() {
+        CompoundTag tag = new CompoundTag();
+        tag.putUUID(AllyManager.OWNER_UUID_TAG, ownerUUID);
+        tag.putInt(AllyManager.COMMAND_TAG, command.ordinal());
+        if (patrolCenter != null) {
+            tag.putIntArray(AllyManager.PATROL_CENTER_TAG,
+                    new int[]{patrolCenter.getX(), patrolCenter.getY(), patrolCenter.getZ()});
+        }
+        return tag;
+    }
+
+    /**
+     * Reads a state written by {@link #save()}.
+     *
+     * @param tag The saved tag
+     * @return The state, or null if the tag holds no owner
+     */
+    @Nullable
+    public static AllyState load(CompoundTag tag) {
+        if (!tag.hasUUID(AllyManager.OWNER_UUID_TAG)) {
+            return null;
+        }
+        UUID ownerUUID = tag.getUUID(AllyManager.OWNER_UUID_TAG);
+        return new AllyState(ownerUUID, OwnerIds.of(ownerUUID), -1,
+                commandFromOrdinal(tag.getInt(AllyManager.COMMAND_TAG)),
+                readPatrolCenter(tag));
+    }
+
+    static AllyCommand commandFromOrdinal(int ordinal) {
+        AllyCommand[] commands = AllyCommand.values();
+        return ordinal >= 0 && ordinal < commands.length ? commands[ordinal] : AllyCommand.FOLLOW;
+    }
+
+    @Nullable
+    static BlockPos readPatrolCenter(CompoundTag tag) {
+        int[] coords = tag.getIntArray(AllyManager.PATROL_CENTER_TAG);
+        return coords.length == 3 ? new BlockPos(coords[0], coords[1], coords[2]) : null;
+    }
+}
@@ -0,0 +1,125 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.entity.ai.AllyCommandGoals;
+import kirballs.usualallies.entity.ai.AllyDetail;
+import kirballs.usualallies.entity.ai.AllyFreeze;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.ai.goal.WrappedGoal;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.common.capabilities.CapabilityToken;
+import net.minecraftforge.common.capabilities.ICapabilitySerializable;
+import net.minecraftforge.common.util.LazyOptional;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Capability attached to every non-player living entity that holds its
+ * decoded {@link AllyState}. NBT is only touched when the entity is saved
+ * or loaded; all other reads go through {@link #get()}.
+ */
+public class AllyStateHolder {
+
+    public static final Capability<AllyStateHolder> CAPABILITY = CapabilityManager.get(new CapabilityToken<>() {});
+
+    public static final ResourceLocation ID = new ResourceLocation(UsualAllies.MOD_ID, "ally_state");
+
+    // Null when the entity is not an ally
+    @Nullable
+    private AllyState state;
+
+    // Session-only: the command goals added to this entity instance, null until installed
+    @Nullable
+    private AllyCommandGoals goals;
+
+    // Session-only: frozen-AI state used while the ally stays, null until first needed
+    @Nullable
+    private AllyFreeze freeze;
+
+    // Session-only: target scan goals removed while the combat coordinator picks targets
+    private final List<WrappedGoal> suppressedTargetGoals = new ArrayList<>();
+
+    // Session-only: game time of the next full goal check, see AllyGoalScheduler
+    private long nextGoalCheck;
+
+    // Session-only: AI level-of-detail state (also used for Kirbs), null until first updated
+    @Nullable
+    private AllyDetail detail;
+
+    @Nullable
+    public AllyState get() {
+        return state;
+    }
+
+    public void set(@Nullable AllyState state) {
+        this.state = state;
+    }
+
+    @Nullable
+    public AllyCommandGoals getGoals() {
+        return goals;
+    }
+
+    public void setGoals(@Nullable AllyCommandGoals goals) {
+        this.goals = goals;
+    }
+
+    @Nullable
+    public AllyFreeze getFreeze() {
+        return freeze;
+    }
+
+    public void setFreeze(@Nullable AllyFreeze freeze) {
+        this.freeze = freeze;
+    }
+
+    public long getNextGoalCheck() {
+        return nextGoalCheck;
+    }
+
+    public void setNextGoalCheck(long nextGoalCheck) {
+        this.nextGoalCheck = nextGoalCheck;
+    }
+
+    public List<WrappedGoal> getSuppressedTargetGoals() {
+        return suppressedTargetGoals;
+    }
+
+    @Nullable
+    public AllyDetail getDetail() {
+        return detail;
+    }
+
+    public void setDetail(@Nullable AllyDetail detail) {
+        this.detail = detail;
+    }
+
+    /**
+     * Capability provider attached to entities in {@link AllyManager}.
+     */
+    public static class Provider implements ICapabilitySerializable<CompoundTag> {
+
+        private final AllyStateHolder holder = new AllyStateHolder();
+        private final LazyOptional<AllyStateHolder> optional = LazyOptional.of(() -> holder);
+
+        @Override
+        public <T> LazyOptional<T> getCapability(Capability<T> cap, @Nullable Direction side) {
+            return CAPABILITY.orEmpty(cap, optional);
+        }
+
+        @Override
+        public CompoundTag serializeNBT() {
+            return holder.state != null ? holder.state.save() : new CompoundTag();
+        }
+
+        @Override
+        public void deserializeNBT(CompoundTag tag) {
+            holder.state = AllyState.load(tag);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.ModConfigs;
+import kirballs.usualallies.UsualAllies;
+import kirballs.usualallies.entity.ai.AllyDetail;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Ticks only the allied mobs that are currently loaded, once per level tick.
+ * Allies are registered by {@link AllyManager} when they join a level and
+ * removed when they leave it, so no per-entity event is needed.
+ *
+ * Maintenance (target scrubbing, AI detail tier updates) runs for each ally once every
+ * {@code maintenanceInterval} ticks, spread across the interval by entity id.
+ * Every {@code compactionInterval} ticks a compaction pass over the level's
+ * {@link AllyRegistry} is started and run in slices of {@code compactionBudget}.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class AllyTickService {
+
+    // Loaded allied mobs per server level
+    private static final Map<ServerLevel, LoadedAllies> LOADED_ALLIES = new IdentityHashMap<>();
+
+    /**
+     * Starts ticking an allied mob.
+     * 
+     * @param level The level the mob is in
+     * @param mob The allied mob
+     * @param owner The owner's UUID
+     */
+    public static void track(ServerLevel level, Mob mob, UUID owner) {
+        LOADED_ALLIES.computeIfAbsent(level, k -> new LoadedAllies()).add(mob, owner);
+    }
+
+    /**
+     * Stops ticking a mob. Safe to call for mobs that were never tracked.
+     * 
+     * @param level The level the mob was in
+     * @param mob The mob
+     * @return The owner UUID the mob was tracked with, or null if it wasn't tracked
+     */
+    @Nullable
+    public static UUID untrack(ServerLevel level, Mob mob) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? allies.remove(mob) : null;
+    }
+
+    /**
+     * Gets the loaded allies of an owner in a level.
+     * 
+     * @param level The level
+     * @param owner The owner's UUID
+     * @return Read-only list of the owner's loaded allies
+     */
+    public static List<Mob> getLoadedAllies(ServerLevel level, UUID owner) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? allies.getAllies(owner) : Collections.emptyList();
+    }
+
+    /**
+     * Gets the owners with loaded allies in a level.
+     * 
+     * @param level The level
+     * @return A new list of the owners' UUIDs
+     */
+    public static List<UUID> getLoadedOwners(ServerLevel level) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? new ArrayList<>(allies.owners()) : new ArrayList<>();
+    }
+
+    /**
+     * Gets the loaded allies within a radius of a point, using the section index.
+     * 
+     * @param level The level
+     * @param center The center of the search
+     * @param radius The search radius, in blocks
+     * @param ownerKey Only return allies of this {@link OwnerIds} key, or {@link OwnerIds#NONE} for any owner
+     * @return A new list of the matching allies
+     */
+    public static List<Mob> getAlliesWithin(ServerLevel level, Vec3 center, double radius, int ownerKey) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? allies.getAlliesWithin(center, radius, ownerKey) : new ArrayList<>();
+    }
+
+    /**
+     * Gets the number of loaded allies in a level.
+     */
+    public static int getLoadedCount(ServerLevel level) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? allies.size() : 0;
+    }
+
+    /**
+     * Gets the number of owners with loaded allies in a level.
+     */
+    public static int getLoadedOwnerCount(ServerLevel level) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? allies.ownerCount() : 0;
+    }
+
+    /**
+     * Gets the number of chunk sections holding loaded allies in a level.
+     */
+    public static int getOccupiedSectionCount(ServerLevel level) {
+        LoadedAllies allies = LOADED_ALLIES.get(level);
+        return allies != null ? allies.sectionCount() : 0;
+    }
+
+    /**
+     * Keeps the section index current as allies cross section boundaries.
+     */
+    @SubscribeEvent
+    public static void onEnteringSection(EntityEvent.EnteringSection event) {
+        if (event.getEntity() instanceof Mob mob && mob.level() instanceof ServerLevel serverLevel) {
+            LoadedAllies allies = LOADED_ALLIES.get(serverLevel);
+            if (allies != null) {
+                allies.move(mob, event.getPackedNewPos());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != LogicalSide.SERVER
+                || !(event.level instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        
+        long gameTime = serverLevel.getGameTime();
+        
+        LoadedAllies allies = LOADED_ALLIES.get(serverLevel);
+        if (allies != null && !allies.isEmpty()) {
+            int interval = ModConfigs.ALLY_MAINTENANCE_INTERVAL.get();
+            for (Mob ally : allies.all()) {
+                // Spread maintenance across the interval by entity id
+                if ((gameTime + ally.getId()) % interval == 0) {
+                    runMaintenance(ally);
+                }
+            }
+        }
+        
+        // Registry compaction, one slice per tick while a pass is running
+        AllyRegistry registry = AllyRegistry.get(serverLevel);
+        if (registry.isCompacting() || gameTime % ModConfigs.ALLY_COMPACTION_INTERVAL.get() == 0) {
+            registry.compact(serverLevel, ModConfigs.ALLY_COMPACTION_BUDGET.get());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            LOADED_ALLIES.remove(serverLevel);
+        }
+    }
+
+    /**
+     * Periodic per-ally upkeep.
+     * Drops targets that are dead, the ally's owner, or friendly to the ally,
+     * re-freezes idle STAY allies that were woken, and refreshes the AI detail tier
+     * and whether the ally scans for targets itself.
+     */
+    private static void runMaintenance(Mob ally) {
+        AllyDetail.update(ally);
+        AllyManager.updateTargetScans(ally);
+        
+        LivingEntity target = ally.getTarget();
+        if (target == null) {
+            AllyManager.refreezeIfIdle(ally);
+            return;
+        }
+        // areFriendly also covers the ally's own owner
+        if (!target.isAlive() || AllyManager.areFriendly(ally, target)) {
+            ally.setTarget(null);
+        }
+    }
+}
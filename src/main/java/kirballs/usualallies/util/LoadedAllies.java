@@ -0,0 +1,228 @@
+package kirballs.usualallies.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.phys.Vec3;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * The allied mobs currently loaded in one level, indexed by owner and by
+ * chunk section. Kept up to date by {@link AllyTickService} as allies join
+ * and leave the level and move between sections, so "all allies of this
+ * player" or "allies near this point" never need a level-wide lookup.
+ */
+public class LoadedAllies {
+
+    // Every loaded ally, with its owner and current section
+    private final Map<Mob, Entry> entries = new IdentityHashMap<>();
+
+    // Owner UUID -> that owner's loaded allies
+    private final Map<UUID, List<Mob>> byOwner = new HashMap<>();
+
+    // Packed section position -> allies in that section
+    private final Long2ObjectOpenHashMap<List<Entry>> bySection = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Adds an ally, or moves it to a new owner if it is already present.
+     */
+    void add(Mob mob, UUID owner) {
+        Entry entry = entries.get(mob);
+        if (entry == null) {
+            entry = new Entry(mob, owner, sectionOf(mob));
+            entries.put(mob, entry);
+            bySection.computeIfAbsent(entry.section, k -> new ArrayList<>()).add(entry);
+        } else if (owner.equals(entry.owner)) {
+            return;
+        } else {
+            removeFromOwner(entry.owner, mob);
+            entry.setOwner(owner);
+        }
+        byOwner.computeIfAbsent(owner, k -> new ArrayList<>()).add(mob);
+    }
+
+    /**
+     * Removes an ally.
+     *
+     * @return The owner the ally was indexed under, or null if it wasn't present
+     */
+    @Nullable
+    UUID remove(Mob mob) {
+        Entry entry = entries.remove(mob);
+        if (entry == null) {
+            return null;
+        }
+        removeFromOwner(entry.owner, mob);
+        removeFromSection(entry);
+        return entry.owner;
+    }
+
+    /**
+     * Moves an ally to the section it has just entered.
+     * Does nothing for mobs that aren't tracked.
+     *
+     * @param mob The ally
+     * @param section The new section, packed as by {@link SectionPos#asLong()}
+     */
+    void move(Mob mob, long section) {
+        Entry entry = entries.get(mob);
+        if (entry == null || entry.section == section) {
+            return;
+        }
+        removeFromSection(entry);
+        entry.section = section;
+        bySection.computeIfAbsent(section, k -> new ArrayList<>()).add(entry);
+    }
+
+    private void removeFromOwner(UUID owner, Mob mob) {
+        List<Mob> allies = byOwner.get(owner);
+        if (allies != null) {
+            allies.remove(mob);
+            if (allies.isEmpty()) {
+                byOwner.remove(owner);
+            }
+        }
+    }
+
+    private void removeFromSection(Entry entry) {
+        List<Entry> section = bySection.get(entry.section);
+        if (section != null) {
+            section.remove(entry);
+            if (section.isEmpty()) {
+                bySection.remove(entry.section);
+            }
+        }
+    }
+
+    /**
+     * Gets the loaded allies of an owner.
+     *
+     * @param owner The owner's UUID
+     * @return Read-only view of the owner's loaded allies
+     */
+    public List<Mob> getAllies(UUID owner) {
+        List<Mob> allies = byOwner.get(owner);
+        return allies != null ? Collections.unmodifiableList(allies) : Collections.emptyList();
+    }
+
+    /**
+     * Gets the loaded allies within a radius of a point, optionally of one owner only.
+     * Only the sections overlapping the radius are visited.
+     *
+     * @param center The center of the search
+     * @param radius The search radius, in blocks
+     * @param ownerKey Only return allies of this {@link OwnerIds} key, or {@link OwnerIds#NONE} for any owner
+     * @return A new list of the matching allies
+     */
+    public List<Mob> getAlliesWithin(Vec3 center, double radius, int ownerKey) {
+        List<Mob> result = new ArrayList<>();
+        double radiusSqr = radius * radius;
+        int minX = SectionPos.posToSectionCoord(center.x - radius);
+        int minY = SectionPos.posToSectionCoord(center.y - radius);
+        int minZ = SectionPos.posToSectionCoord(center.z - radius);
+        int maxX = SectionPos.posToSectionCoord(center.x + radius);
+        int maxY = SectionPos.posToSectionCoord(center.y + radius);
+        int maxZ = SectionPos.posToSectionCoord(center.z + radius);
+
+        // Huge radii touch more sections than there are allies; scan the allies instead
+        long sectionCount = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (sectionCount > entries.size()) {
+            for (Entry entry : entries.values()) {
+                if (entry.matches(center, radiusSqr, ownerKey)) {
+                    result.add(entry.mob);
+                }
+            }
+            return result;
+        }
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    List<Entry> section = bySection.get(SectionPos.asLong(x, y, z));
+                    if (section == null) {
+                        continue;
+                    }
+                    for (Entry entry : section) {
+                        if (entry.matches(center, radiusSqr, ownerKey)) {
+                            result.add(entry.mob);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets every loaded ally in the level.
+     */
+    public Set<Mob> all() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the owners with loaded allies.
+     *
+     * @return Read-only view of the owner UUIDs
+     */
+    public Set<UUID> owners() {
+        return Collections.unmodifiableSet(byOwner.keySet());
+    }
+
+    public int ownerCount() {
+        return byOwner.size();
+    }
+
+    public int sectionCount() {
+        return bySection.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    static long sectionOf(Mob mob) {
+        return SectionPos.asLong(
+                SectionPos.blockToSectionCoord(mob.getBlockX()),
+                SectionPos.blockToSectionCoord(mob.getBlockY()),
+                SectionPos.blockToSectionCoord(mob.getBlockZ()));
+    }
+
+    /**
+     * Index entry for one loaded ally.
+     */
+    private static class Entry {
+
+        private final Mob mob;
+
+        private UUID owner;
+
+        // Interned owner id, for cheap owner filtering
+        private int ownerKey;
+
+        // Packed section position the ally is indexed under
+        private long section;
+
+        private Entry(Mob mob, UUID owner, long section) {
+            this.mob = mob;
+            this.section = section;
+            setOwner(owner);
+        }
+
+        private void setOwner(UUID owner) {
+            this.owner = owner;
+            this.ownerKey = OwnerIds.of(owner);
+        }
+
+        private boolean matches(Vec3 center, double radiusSqr, int ownerKey) {
+            return (ownerKey == OwnerIds.NONE || ownerKey == this.ownerKey)
+                    && mob.distanceToSqr(center) <= radiusSqr;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package kirballs.usualallies.util;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.UUID;
+
+/**
+ * Interns owner UUIDs into small positive integers so friend-or-foe checks
+ * can compare ints instead of UUIDs. Ids are session-only and never saved.
+ * 0 is reserved for "no owner".
+ */
+public final class OwnerIds {
+
+    public static final int NONE = 0;
+
+    private static final Object2IntOpenHashMap<UUID> IDS = new Object2IntOpenHashMap<>();
+
+    private OwnerIds() {
+    }
+
+    /**
+     * Gets the interned id of an owner UUID, assigning one on first use.
+     *
+     * @param owner The owner's UUID
+     * @return A positive id, stable for the lifetime of the game instance
+     */
+    public static synchronized int of(UUID owner) {
+        int id = IDS.getInt(owner);
+        if (id == NONE) {
+            id = IDS.size() + 1;
+            IDS.put(owner, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,77 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shared UUID -> online player map used by ally goals and Kirbs to find
+ * their owner or holder. {@link Level#getPlayerByUUID} scans the level's
+ * player list on every call; this map is kept current on login, logout and
+ * respawn (which replaces the player entity) instead.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class OwnerLookup {
+
+    private static final Map<UUID, ServerPlayer> PLAYERS = new HashMap<>();
+
+    /**
+     * Finds an online player by UUID, if they are in the given level.
+     * Behaves like {@link Level#getPlayerByUUID}, without the list scan on the server.
+     * 
+     * @param level The level the player must be in
+     * @param uuid The player's UUID
+     * @return The player, or null if offline or in another level
+     */
+    @Nullable
+    public static Player get(Level level, UUID uuid) {
+        if (!(level instanceof ServerLevel)) {
+            return level.getPlayerByUUID(uuid);
+        }
+        ServerPlayer player = PLAYERS.get(uuid);
+        return player != null && player.level() == level ? player : null;
+    }
+
+    /**
+     * Gets the number of players in the lookup.
+     */
+    public static int size() {
+        return PLAYERS.size();
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            PLAYERS.put(player.getUUID(), player);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        PLAYERS.remove(event.getEntity().getUUID(), event.getEntity());
+    }
+
+    @SubscribeEvent
+    public static void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        // Respawning (and leaving the End) creates a new player entity
+        if (event.getEntity() instanceof ServerPlayer player) {
+            PLAYERS.put(player.getUUID(), player);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        PLAYERS.clear();
+    }
+}
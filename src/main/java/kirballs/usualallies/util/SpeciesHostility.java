@@ -0,0 +1,217 @@
+package kirballs.usualallies.util;
+
+import kirballs.usualallies.UsualAllies;
+import net.minecraft.core.Holder;
+import net.minecraft.core.HolderSet;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.goal.WrappedGoal;
+import net.minecraft.world.entity.ai.goal.target.NearestAttackableTargetGoal;
+import net.minecraft.world.entity.ai.targeting.TargetingConditions;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.living.LivingChangeTargetEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Keeps mobs from hunting allies just for being of a species they are
+ * naturally hostile to (iron golems and zombies, wolves and skeletons, ...).
+ *
+ * Which species a mob type hunts is read from the entity type tag
+ * {@code usualallies:prey/<namespace>/<path>} of that type, e.g.
+ * {@code usualallies:prey/minecraft/iron_golem}. The tags are flattened
+ * into a per-type lookup table whenever data packs are (re)loaded, so the
+ * target-change hook costs two identity map lookups.
+ *
+ * The {@code NearestAttackableTargetGoal} scans of every mob skip allies
+ * the mob would only hunt for their species, so the scan settles on the
+ * next-nearest prey instead of stopping at an ally. The scan's private
+ * targeting predicate is found by type and wrapped once, when the mob
+ * joins a level.
+ *
+ * Other ways of picking an ally as a target are vetoed in the target-change
+ * hook. A vetoed hunter is redirected, without any search, to whoever last
+ * hurt it, or else to the ally's own target if it hunts that too. Hunters
+ * the ally hurt first may still fight back.
+ */
+@Mod.EventBusSubscriber(modid = UsualAllies.MOD_ID)
+public class SpeciesHostility {
+
+    private static final String PREY_TAG_PREFIX = "prey/";
+
+    // Hunter type -> the types it is hostile to; rebuilt on tag reload
+    private static volatile Map<EntityType<?>, Set<EntityType<?>>> table = Collections.emptyMap();
+
+    // NearestAttackableTargetGoal.targetConditions and TargetingConditions.selector; null if not found
+    @Nullable
+    private static final Field TARGET_CONDITIONS = findField(NearestAttackableTargetGoal.class, TargetingConditions.class);
+    @Nullable
+    private static final Field SELECTOR = findField(TargetingConditions.class, Predicate.class);
+
+    /**
+     * Checks whether a type of mob is hostile to another type by nature.
+     *
+     * @param hunter The type of the targeting mob
+     * @param prey The type of the target
+     * @return True if the hunter's prey tag contains the target's type
+     */
+    public static boolean isHostile(EntityType<?> hunter, EntityType<?> prey) {
+        Set<EntityType<?>> preyTypes = table.get(hunter);
+        return preyTypes != null && preyTypes.contains(prey);
+    }
+
+    /**
+     * Rebuilds the table from the prey tags after the server (re)loaded its data.
+     */
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        if (event.getUpdateCause() != TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) {
+            return;
+        }
+        Registry<EntityType<?>> registry = event.getRegistryAccess().registryOrThrow(Registries.ENTITY_TYPE);
+        Map<EntityType<?>, Set<EntityType<?>>> built = new IdentityHashMap<>();
+        for (Map.Entry<ResourceKey<EntityType<?>>, EntityType<?>> entry : registry.entrySet()) {
+            ResourceLocation id = entry.getKey().location();
+            TagKey<EntityType<?>> tag = TagKey.create(Registries.ENTITY_TYPE, new ResourceLocation(UsualAllies.MOD_ID,
+                    PREY_TAG_PREFIX + id.getNamespace() + "/" + id.getPath()));
+            Optional<HolderSet.Named<EntityType<?>>> prey = registry.getTag(tag);
+            if (prey.isEmpty() || prey.get().size() == 0) {
+                continue;
+            }
+            Set<EntityType<?>> types = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Holder<EntityType<?>> holder : prey.get()) {
+                types.add(holder.value());
+            }
+            built.put(entry.getValue(), types);
+        }
+        table = built;
+    }
+
+    /**
+     * Makes a joining mob's nearest-target scans pass over allies it would
+     * only hunt for their species. Runs before ally setup, which may take
+     * the scans out of the target selector.
+     */
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public static void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        if (event.getLevel().isClientSide() || !(event.getEntity() instanceof Mob hunter)
+                || TARGET_CONDITIONS == null || SELECTOR == null) {
+            return;
+        }
+        for (WrappedGoal wrapped : hunter.targetSelector.getAvailableGoals()) {
+            if (wrapped.getGoal() instanceof NearestAttackableTargetGoal<?> goal) {
+                excludeSpeciesAllies(hunter, goal);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void excludeSpeciesAllies(Mob hunter, NearestAttackableTargetGoal<?> goal) {
+        try {
+            TargetingConditions conditions = (TargetingConditions) TARGET_CONDITIONS.get(goal);
+            if (conditions == null) {
+                return;
+            }
+            Predicate<LivingEntity> selector = (Predicate<LivingEntity>) SELECTOR.get(conditions);
+            if (!(selector instanceof AllyExcludingSelector)) {
+                conditions.selector(new AllyExcludingSelector(hunter, selector));
+            }
+        } catch (IllegalAccessException | ClassCastException e) {
+            // Leave the scan as it is; the target-change veto still applies
+        }
+    }
+
+    /**
+     * Finds the single field of a class holding the given type, made accessible.
+     */
+    @Nullable
+    private static Field findField(Class<?> owner, Class<?> type) {
+        Field found = null;
+        for (Field field : owner.getDeclaredFields()) {
+            if (field.getType() == type && !Modifier.isStatic(field.getModifiers())) {
+                if (found != null) {
+                    return null;
+                }
+                found = field;
+            }
+        }
+        try {
+            if (found != null) {
+                found.setAccessible(true);
+            }
+            return found;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Vetoes a mob picking an ally as its target only because of the ally's species,
+     * and hands the mob a replacement target.
+     */
+    @SubscribeEvent
+    public static void onChangeTarget(LivingChangeTargetEvent event) {
+        LivingEntity target = event.getNewTarget();
+        LivingEntity hunter = event.getEntity();
+        if (target == null || hunter.level().isClientSide() || !isHostile(hunter.getType(), target.getType())) {
+            return;
+        }
+        // Fighting back against an ally that started it is fine
+        if (hunter.getLastHurtByMob() == target || !AllyManager.isAlly(target)) {
+            return;
+        }
+        event.setNewTarget(findRetarget(hunter, target));
+    }
+
+    /**
+     * Picks a replacement target from what is already known, without searching.
+     */
+    @Nullable
+    private static LivingEntity findRetarget(LivingEntity hunter, LivingEntity ally) {
+        LivingEntity attacker = hunter.getLastHurtByMob();
+        if (attacker != null && attacker.isAlive() && !AllyManager.areFriendly(hunter, attacker)) {
+            return attacker;
+        }
+        LivingEntity allyTarget = ally instanceof Mob mob ? mob.getTarget() : null;
+        if (allyTarget != null && allyTarget != hunter && allyTarget.isAlive()
+                && isHostile(hunter.getType(), allyTarget.getType()) && !AllyManager.isAlly(allyTarget)) {
+            return allyTarget;
+        }
+        return null;
+    }
+
+    /**
+     * A scan's targeting predicate, extended to skip allies the hunter would
+     * only target for their species.
+     */
+    private record AllyExcludingSelector(Mob hunter, @Nullable Predicate<LivingEntity> original)
+            implements Predicate<LivingEntity> {
+
+        @Override
+        public boolean test(LivingEntity target) {
+            if (isHostile(hunter.getType(), target.getType()) && hunter.getLastHurtByMob() != target
+                    && AllyManager.isAlly(target)) {
+                return false;
+            }
+            return original == null || original.test(target);
+        }
+    }
+}